@@ -0,0 +1,164 @@
+import cycling.ConcurrentCyclingPortal;
+import cycling.SegmentType;
+import cycling.StageType;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how many queries a ConcurrentCyclingPortal answers per second as the number of
+ * reading threads grows. Every reader runs the same mix of stage and race queries (points,
+ * mountain points, the GC, a single rider's GC rank and a stage's leaders) against one race.
+ * Reads of points are pure, so readers should only ever wait for a writer, never for each
+ * other.
+ *
+ * <p>With the argument "write", a writer thread deletes and re-registers results for the
+ * whole run, so readers also have to catch the rankings up with new results.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class ConcurrentReadThroughputBenchmark {
+
+	private static final int[] READER_COUNTS = {1, 2, 4, 8, 16};
+	private static final int RIDERS = 2000;
+	private static final int STAGES = 3;
+	private static final long RUN_MILLIS = 2000; // Length of each timed run
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args "write" to keep a writer running alongside the readers
+	 * @throws Exception If the portal rejects the race or results, or a reader fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		boolean writing = args.length > 0 && args[0].equals("write");
+		ConcurrentCyclingPortal portal = new ConcurrentCyclingPortal();
+		int raceId = buildRace(portal);
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors, "
+				+ (writing ? "with" : "without") + " a writer");
+		System.out.println(" readers      queries/s");
+		run(portal, raceId, 1, writing); // Warm up
+		for (int readers : READER_COUNTS) {
+			System.out.printf("%8d %14.0f%n", readers, run(portal, raceId, readers, writing));
+		}
+	}
+
+	/**
+	 * Creates a race with every rider's results in each of its stages.
+	 *
+	 * @param portal the portal to create the race in
+	 * @return ID of the race
+	 * @throws Exception If the portal rejects the race or results.
+	 */
+	private static int buildRace(ConcurrentCyclingPortal portal) throws Exception {
+		int teamId = portal.createTeam("team", "description");
+		int raceId = portal.createRace("race", "description");
+		int[] riderIds = new int[RIDERS];
+		for (int i = 0; i < RIDERS; i++) {
+			riderIds[i] = portal.createRider(teamId, "rider" + i, 1990);
+		}
+		for (int s = 0; s < STAGES; s++) {
+			int stageId = portal.addStageToRace(raceId, "stage" + s, "description", 200,
+					LocalDateTime.of(2022, 7, 1 + s, 10, 0), StageType.FLAT);
+			portal.addIntermediateSprintToStage(stageId, 50);
+			portal.addCategorizedClimbToStage(stageId, 100.0, SegmentType.C1, 5.0, 3.0);
+			portal.concludeStagePreparation(stageId);
+			for (int i = 0; i < RIDERS; i++) {
+				portal.registerRiderResultsInStage(stageId, riderIds[i], checkpoints(i, s));
+			}
+		}
+		return raceId;
+	}
+
+	/**
+	 * Makes a rider's checkpoint times in a stage.
+	 *
+	 * @param i the rider's position in the field
+	 * @param stage the stage's position in the race
+	 * @return the checkpoint times
+	 */
+	private static LocalTime[] checkpoints(int i, int stage) {
+		LocalTime start = LocalTime.of(10, 0);
+		return new LocalTime[] {start,
+			start.plusSeconds(1800 + (i * 7919L + stage) % 900),
+			start.plusSeconds(3600 + (i * 104729L + stage) % 900),
+			start.plusSeconds(7200 + (i * 15485863L + stage) % 3600)};
+	}
+
+	/**
+	 * Runs the readers, and the writer if asked, for a fixed time.
+	 *
+	 * @param portal the portal
+	 * @param raceId ID of the race
+	 * @param readers number of reading threads
+	 * @param writing true to run a writer alongside the readers
+	 * @return queries answered per second, across every reader
+	 * @throws Exception If a reader or the writer fails.
+	 */
+	private static double run(ConcurrentCyclingPortal portal, int raceId, int readers,
+			boolean writing) throws Exception {
+		int[] stageIds = portal.getRaceStages(raceId);
+		int[] riderIds = portal.getRidersRankInStage(stageIds[0]);
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicLong queries = new AtomicLong();
+		Thread[] threads = new Thread[readers + (writing ? 1 : 0)];
+		Exception[] failure = new Exception[1];
+		for (int t = 0; t < readers; t++) {
+			int reader = t;
+			threads[t] = new Thread(() -> {
+				long count = 0;
+				try {
+					for (int i = reader; !done.get(); i++) {
+						int stageId = stageIds[i % stageIds.length];
+						portal.getRidersPointsInStage(stageId);
+						portal.getRidersMountainPointsInStage(stageId);
+						portal.getTopRidersInStage(stageId, 10);
+						portal.getRiderGCRank(raceId, riderIds[i % riderIds.length]);
+						portal.getRidersGeneralClassificationRank(raceId);
+						count += 5;
+					}
+				} catch (Exception e) {
+					failure[0] = e;
+				}
+				queries.addAndGet(count);
+			});
+		}
+		if (writing) {
+			threads[readers] = new Thread(() -> {
+				try {
+					int stageId = stageIds[stageIds.length - 1];
+					for (int i = 0; !done.get(); i = (i + 1) % riderIds.length) {
+						LocalTime[] results = portal.getRiderResultsInStage(stageId, riderIds[i]);
+						LocalTime start = LocalTime.of(10, 0);
+						LocalTime[] checkpoints = new LocalTime[results.length + 1];
+						checkpoints[0] = start;
+						for (int c = 0; c < results.length; c++) {
+							checkpoints[c + 1] = start.plusNanos(results[c].toNanoOfDay());
+						}
+						portal.deleteRiderResultsInStage(stageId, riderIds[i]);
+						portal.registerRiderResultsInStage(stageId, riderIds[i], checkpoints);
+					}
+				} catch (Exception e) {
+					failure[0] = e;
+				}
+			});
+		}
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		Thread.sleep(RUN_MILLIS);
+		done.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+		return queries.get() * 1e9 / elapsed;
+	}
+}
@@ -0,0 +1,198 @@
+import cycling.CyclingPortal;
+import cycling.DuplicatedResultException;
+import cycling.IDNotRecognisedException;
+import cycling.SegmentType;
+import cycling.StageType;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+/**
+ * A randomised comparison of the portal's general classification against the original
+ * algorithm, which added up every rider's adjusted times stage by stage and then sorted the
+ * riders by their totals, keeping riders on equal totals in the order they first appeared.
+ * The original stopped adding up at the first stage with no results; here empty stages are
+ * skipped, as the portal does.
+ *
+ * <p>Each run registers and deletes results at random, re-registering riders whose results
+ * were deleted, removes riders, and adds and removes stages so the race's stages are
+ * reordered. Times are whole minutes, so many riders tie. The GC is compared after most
+ * steps, and the first mismatch is printed before the app exits with status 1.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class GeneralClassificationComparisonTestApp {
+
+	/**
+	 * Runs the comparison.
+	 *
+	 * @param args the number of seeds to run (200 if not given), then the first seed (1 if not
+	 *             given)
+	 * @throws Exception If the portal throws something the comparison doesn't expect.
+	 */
+	public static void main(String[] args) throws Exception {
+		int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		long firstSeed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+		for (long seed = firstSeed; seed < firstSeed + seeds; seed++) {
+			String mismatch = run(seed);
+			if (mismatch != null) {
+				System.out.println("Mismatch with seed " + seed + ": " + mismatch);
+				System.exit(1);
+			}
+		}
+		System.out.println(seeds + " seeds matched the original algorithm.");
+	}
+
+	/**
+	 * Runs the comparison for one seed.
+	 *
+	 * @param seed seed for the random changes
+	 * @return a description of the first mismatch, or null if there were none
+	 * @throws Exception If the portal throws something the comparison doesn't expect.
+	 */
+	private static String run(long seed) throws Exception {
+		Random random = new Random(seed);
+		CyclingPortal portal = new CyclingPortal();
+		portal.eraseCyclingPortal();
+		int teamId = portal.createTeam("team", "description");
+		int[] riderIds = new int[30];
+		for (int i = 0; i < riderIds.length; i++) {
+			riderIds[i] = portal.createRider(teamId, "rider" + i, 1990);
+		}
+		int raceId = portal.createRace("race", "description");
+		int stagesAdded = 0;
+		for (; stagesAdded < 4; stagesAdded++) {
+			addStage(portal, raceId, stagesAdded, random);
+		}
+
+		for (int step = 0; step < 400; step++) {
+			int[] stageIds = portal.getRaceStages(raceId);
+			int riderId = riderIds[random.nextInt(riderIds.length)];
+			int choice = random.nextInt(20);
+			if (choice < 12) {
+				register(portal, stageIds[random.nextInt(stageIds.length)], riderId, random);
+			} else if (choice < 18) {
+				int stageId = stageIds[random.nextInt(stageIds.length)];
+				try {
+					portal.deleteRiderResultsInStage(stageId, riderId);
+					// Re-registering moves the rider to the back of any tie they are in
+					if (random.nextBoolean()) {
+						register(portal, stageId, riderId, random);
+					}
+				} catch (IDNotRecognisedException e) {
+					// The rider has been removed
+				}
+			} else if (choice == 18) {
+				addStage(portal, raceId, stagesAdded++, random);
+			} else if (stageIds.length > 1) {
+				portal.removeStageById(stageIds[random.nextInt(stageIds.length)]);
+			}
+			if (step % 100 == 99) {
+				try {
+					portal.removeRider(riderId);
+				} catch (IDNotRecognisedException e) {
+					// Already removed
+				}
+			}
+
+			if (random.nextInt(3) > 0) {
+				String mismatch = compare(portal, raceId);
+				if (mismatch != null) {
+					return "step " + step + ", " + mismatch;
+				}
+			}
+		}
+		return compare(portal, raceId);
+	}
+
+	/**
+	 * Adds a stage on a random day, so it may come before stages already in the race, with two
+	 * sprints and a climb, ready for results.
+	 *
+	 * @param portal the portal
+	 * @param raceId ID of the race
+	 * @param number number of stages added so far, used for the name
+	 * @param random source of the day
+	 * @throws Exception If the portal rejects the stage.
+	 */
+	private static void addStage(CyclingPortal portal, int raceId, int number, Random random)
+			throws Exception {
+		LocalDateTime start = LocalDateTime.of(2022, 7, 1 + random.nextInt(20), 10, 0);
+		// Time-trials can't have segments, so only the other types are used
+		StageType type = new StageType[] {StageType.FLAT, StageType.MEDIUM_MOUNTAIN,
+				StageType.HIGH_MOUNTAIN}[number % 3];
+		int stageId = portal.addStageToRace(raceId, "stage" + number, "description", 100, start,
+				type);
+		portal.addIntermediateSprintToStage(stageId, 10);
+		portal.addIntermediateSprintToStage(stageId, 20);
+		portal.addCategorizedClimbToStage(stageId, 50.0, SegmentType.C1, 5.0, 3.0);
+		portal.concludeStagePreparation(stageId);
+	}
+
+	/**
+	 * Registers results for a rider made of whole minutes, ignoring riders who already have
+	 * results in the stage or have been removed.
+	 *
+	 * @param portal the portal
+	 * @param stageId ID of the stage
+	 * @param riderId ID of the rider
+	 * @param random source of the times
+	 * @throws Exception If the portal throws something other than the expected exceptions.
+	 */
+	private static void register(CyclingPortal portal, int stageId, int riderId, Random random)
+			throws Exception {
+		LocalTime[] checkpoints = new LocalTime[5];
+		checkpoints[0] = LocalTime.of(1, 0);
+		for (int i = 1; i < checkpoints.length; i++) {
+			checkpoints[i] = checkpoints[i - 1].plusMinutes(random.nextInt(8) == 0 ? 2 : 1);
+		}
+		try {
+			portal.registerRiderResultsInStage(stageId, riderId, checkpoints);
+		} catch (DuplicatedResultException | IDNotRecognisedException e) {
+			// Nothing to register
+		}
+	}
+
+	/**
+	 * Works out the GC with the original algorithm, from the stage rankings, and compares it
+	 * with the portal's.
+	 *
+	 * @param portal the portal
+	 * @param raceId ID of the race
+	 * @return a description of the mismatch, or null if the two agree
+	 * @throws Exception If the portal can't find the race or its stages.
+	 */
+	private static String compare(CyclingPortal portal, int raceId) throws Exception {
+		LinkedHashMap<Integer, Long> totals = new LinkedHashMap<Integer, Long>();
+		for (int stageId : portal.getRaceStages(raceId)) {
+			int[] ranked = portal.getRidersRankInStage(stageId);
+			LocalTime[] adjusted = portal.getRankedAdjustedElapsedTimesInStage(stageId);
+			for (int i = 0; i < ranked.length; i++) {
+				totals.merge(ranked[i], adjusted[i].toNanoOfDay(), Long::sum);
+			}
+		}
+		// A stable sort keeps riders on equal totals in the order they first appeared
+		ArrayList<Integer> expected = new ArrayList<Integer>(totals.keySet());
+		expected.sort((a, b) -> Long.compare(totals.get(a), totals.get(b)));
+
+		int[] riders = portal.getRidersGeneralClassificationRank(raceId);
+		LocalTime[] times = portal.getGeneralClassificationTimesInRace(raceId);
+		int[] expectedRiders = expected.stream().mapToInt(Integer::intValue).toArray();
+		if (!Arrays.equals(riders, expectedRiders)) {
+			return "expected riders " + Arrays.toString(expectedRiders) + " but got "
+					+ Arrays.toString(riders);
+		}
+		for (int i = 0; i < riders.length; i++) {
+			if (times[i].toNanoOfDay() != totals.get(riders[i])) {
+				return "expected " + LocalTime.ofNanoOfDay(totals.get(riders[i])) + " for rider "
+						+ riders[i] + " but got " + times[i];
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,152 @@
+import com.sun.management.ThreadMXBean;
+import cycling.CyclingPortal;
+import cycling.SegmentType;
+import cycling.StageType;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Checks how much memory scoring a stage allocates, using the per-thread allocation counter
+ * of the JVM's ThreadMXBean. Scoring should only need a few primitive arrays the size of the
+ * field, so a change that brings back boxed points or per-rider objects shows up as a jump in
+ * bytes per rider.
+ *
+ * <p>Each step deletes one result and registers it again, so the stage has to be ranked and
+ * scored again. Steps that only read the stage's rankings are measured as well as steps that
+ * also read its points and mountain points, and the difference is what scoring allocated.
+ * The app exits with status 1 if that is over the threshold for any field size.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class PointsEngineAllocationCheck {
+
+	private static final int[] FIELD_SIZES = {200, 2000}; // Riders in the stage
+	private static final int SEGMENTS = 8; // Half sprints, half climbs
+	private static final double DEFAULT_THRESHOLD = 96; // Bytes per rider scoring may allocate
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args the threshold in bytes per rider (96 if not given)
+	 * @throws Exception If the portal rejects the stage or results.
+	 */
+	public static void main(String[] args) throws Exception {
+		double threshold = args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_THRESHOLD;
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("This JVM can't count allocated memory, nothing was checked.");
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		boolean passed = true;
+		for (int riders : FIELD_SIZES) {
+			CyclingPortal portal = new CyclingPortal();
+			int stageId = buildStage(portal, riders);
+			int iterations = Math.max(20, 200_000 / riders);
+			double ranking = bytesPerStep(threads, portal, stageId, iterations, false);
+			double scoring = bytesPerStep(threads, portal, stageId, iterations, true) - ranking;
+			double perRider = scoring / riders;
+			boolean ok = perRider <= threshold;
+			passed &= ok;
+			System.out.printf("%5d riders: scoring allocates %9.0f bytes (%.1f per rider)%s%n",
+					riders, scoring, perRider, ok ? "" : " - over the threshold");
+		}
+		if (!passed) {
+			System.out.printf("Scoring allocated more than %.0f bytes per rider.%n", threshold);
+			System.exit(1);
+		}
+		System.out.printf("Scoring allocated at most %.0f bytes per rider.%n", threshold);
+	}
+
+	/**
+	 * Creates a stage with the given number of riders' results in it.
+	 *
+	 * @param portal the portal to create the stage in
+	 * @param riders number of riders
+	 * @return ID of the stage
+	 * @throws Exception If the portal rejects the stage or results.
+	 */
+	private static int buildStage(CyclingPortal portal, int riders) throws Exception {
+		int teamId = portal.createTeam("team" + riders, "description");
+		int raceId = portal.createRace("race" + riders, "description");
+		int stageId = portal.addStageToRace(raceId, "stage" + riders, "description", 200,
+				LocalDateTime.of(2022, 7, 1, 10, 0), StageType.FLAT);
+		for (int i = 0; i < SEGMENTS; i++) {
+			if (i % 2 == 0) {
+				portal.addIntermediateSprintToStage(stageId, 10 + i * 20);
+			} else {
+				portal.addCategorizedClimbToStage(stageId, 10.0 + i * 20, SegmentType.C1, 5.0, 3.0);
+			}
+		}
+		portal.concludeStagePreparation(stageId);
+		for (int i = 0; i < riders; i++) {
+			int riderId = portal.createRider(teamId, "rider" + i, 1990);
+			portal.registerRiderResultsInStage(stageId, riderId, checkpoints(i));
+		}
+		return stageId;
+	}
+
+	/**
+	 * Makes a rider's checkpoint times, spread out so that segment orders differ from the
+	 * finishing order.
+	 *
+	 * @param i the rider's position in the field
+	 * @return the checkpoint times
+	 */
+	private static LocalTime[] checkpoints(int i) {
+		LocalTime[] checkpoints = new LocalTime[SEGMENTS + 2];
+		checkpoints[0] = LocalTime.of(10, 0);
+		for (int c = 1; c < checkpoints.length; c++) {
+			checkpoints[c] = checkpoints[c - 1].plusSeconds(600 + (i * 7919L + c * 104729L) % 300);
+		}
+		return checkpoints;
+	}
+
+	/**
+	 * Measures the bytes allocated by one step after the same number of warm-up steps. A step
+	 * deletes and re-registers the first rider's result and reads the stage's rankings, and
+	 * its points too if asked.
+	 *
+	 * @param threads the JVM's thread bean
+	 * @param portal the portal
+	 * @param stageId ID of the stage
+	 * @param iterations number of steps to measure
+	 * @param score true to also read the stage's points and mountain points
+	 * @return bytes allocated per step
+	 * @throws Exception If the portal rejects a result.
+	 */
+	private static double bytesPerStep(ThreadMXBean threads, CyclingPortal portal, int stageId,
+			int iterations, boolean score) throws Exception {
+		long threadId = Thread.currentThread().getId();
+		int riderId = portal.getRidersRankInStage(stageId)[0];
+		LocalTime[] times = portal.getRiderResultsInStage(stageId, riderId);
+		LocalTime[] checkpoints = new LocalTime[times.length + 1];
+		checkpoints[0] = LocalTime.of(10, 0);
+		for (int i = 0; i < times.length; i++) {
+			checkpoints[i + 1] = checkpoints[0].plusNanos(times[i].toNanoOfDay());
+		}
+		long sink = 0;
+		long before = 0;
+		for (int i = 0; i < 2 * iterations; i++) {
+			if (i == iterations) {
+				before = threads.getThreadAllocatedBytes(threadId);
+			}
+			portal.deleteRiderResultsInStage(stageId, riderId);
+			portal.registerRiderResultsInStage(stageId, riderId, checkpoints);
+			sink += portal.getRidersRankInStage(stageId).length;
+			if (score) {
+				sink += portal.getRidersPointsInStage(stageId).length;
+				sink += portal.getRidersMountainPointsInStage(stageId).length;
+			}
+		}
+		long after = threads.getThreadAllocatedBytes(threadId);
+		if (sink == 0) {
+			System.out.println("The stage was empty.");
+		}
+		return (after - before) / (double) iterations;
+	}
+}
@@ -0,0 +1,122 @@
+import cycling.ConcurrentCyclingPortal;
+import cycling.StageType;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures how well results for different races go into a ConcurrentCyclingPortal at the
+ * same time. For 1, 2, 4, 8 and 16 races, one thread per race registers results in its own
+ * race's stages, deleting and registering them again round after round and reading the
+ * rider's GC rank after each one. All the races share the same riders, as they would on a
+ * weekend of several races.
+ *
+ * <p>Races only share locks for the riders' own lists of results, so the total number of
+ * results registered per second should grow with the number of races until the processors
+ * run out, rather than staying flat as it would behind a single lock.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class RaceContentionBenchmark {
+
+	private static final int[] RACE_COUNTS = {1, 2, 4, 8, 16};
+	private static final int RIDERS = 150;
+	private static final int STAGES = 3; // Stages in each race
+	private static final int ROUNDS = 20; // Times every result is registered
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args not used
+	 * @throws Exception If the portal rejects a race or result.
+	 */
+	public static void main(String[] args) throws Exception {
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+		System.out.println("   races      results/s");
+		run(RACE_COUNTS[RACE_COUNTS.length - 1]); // Warm up
+		for (int races : RACE_COUNTS) {
+			System.out.printf("%8d %14.0f%n", races, run(races));
+		}
+	}
+
+	/**
+	 * Creates a portal with the given number of races and runs one thread per race.
+	 *
+	 * @param races number of races
+	 * @return results registered per second, across every race
+	 * @throws Exception If the portal rejects a race or result.
+	 */
+	private static double run(int races) throws Exception {
+		ConcurrentCyclingPortal portal = new ConcurrentCyclingPortal();
+		int teamId = portal.createTeam("team", "description");
+		int[] riderIds = new int[RIDERS];
+		for (int i = 0; i < RIDERS; i++) {
+			riderIds[i] = portal.createRider(teamId, "rider" + i, 1990);
+		}
+		int[] raceIds = new int[races];
+		int[][] stageIds = new int[races][STAGES];
+		for (int r = 0; r < races; r++) {
+			raceIds[r] = portal.createRace("race" + r, "description");
+			for (int s = 0; s < STAGES; s++) {
+				stageIds[r][s] = portal.addStageToRace(raceIds[r], "stage" + r + "-" + s,
+						"description", 100, LocalDateTime.of(2022, 7, 1 + s, 10, 0), StageType.FLAT);
+				portal.addIntermediateSprintToStage(stageIds[r][s], 50);
+				portal.concludeStagePreparation(stageIds[r][s]);
+			}
+		}
+
+		CountDownLatch start = new CountDownLatch(1);
+		Exception[] failure = new Exception[1];
+		Thread[] threads = new Thread[races];
+		for (int r = 0; r < races; r++) {
+			int race = r;
+			threads[r] = new Thread(() -> {
+				try {
+					start.await();
+					for (int round = 0; round < ROUNDS; round++) {
+						for (int s = 0; s < STAGES; s++) {
+							for (int i = 0; i < RIDERS; i++) {
+								if (round > 0) {
+									portal.deleteRiderResultsInStage(stageIds[race][s], riderIds[i]);
+								}
+								portal.registerRiderResultsInStage(stageIds[race][s], riderIds[i],
+										checkpoints(race, s, i));
+								portal.getRiderGCRank(raceIds[race], riderIds[i]);
+							}
+						}
+					}
+				} catch (Exception e) {
+					failure[0] = e;
+				}
+			});
+			threads[r].start();
+		}
+		long startTime = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - startTime;
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+		return (double) races * ROUNDS * STAGES * RIDERS * 1e9 / elapsed;
+	}
+
+	/**
+	 * Makes a rider's checkpoint times in a stage of a race.
+	 *
+	 * @param race the race's position in the benchmark
+	 * @param stage the stage's position in the race
+	 * @param i the rider's position in the field
+	 * @return the checkpoint times
+	 */
+	private static LocalTime[] checkpoints(int race, int stage, int i) {
+		LocalTime start = LocalTime.of(10, 0);
+		long seed = i * 7919L + stage * 104729L + race * 15485863L;
+		return new LocalTime[] {start, start.plusSeconds(1800 + seed % 900),
+			start.plusSeconds(7200 + (seed * 31) % 3600)};
+	}
+}
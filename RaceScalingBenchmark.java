@@ -0,0 +1,133 @@
+import cycling.CyclingPortal;
+import cycling.SegmentType;
+import cycling.StageType;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Measures how the race classifications scale with the size of the field. For 200, 2,000 and
+ * 20,000 riders it builds a race of three stages with four segments each, then times steps
+ * that change one result and run all six race classification queries, so every step has to
+ * gather the race's results again.
+ *
+ * <p>Collecting the race's riders should take time in proportion to the number of results, so
+ * ten times as many riders should take a little over ten times as long per step. The growth
+ * from each field size to the next is printed next to the timings.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class RaceScalingBenchmark {
+
+	private static final int[] FIELD_SIZES = {200, 2000, 20000}; // Riders in the race
+	private static final int STAGES = 3;
+	private static final int SEGMENTS = 4; // Segments in each stage
+	private static final long RESULTS_PER_RUN = 4_000_000; // Results gathered per timed run
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args not used
+	 * @throws Exception If the portal rejects the race or results.
+	 */
+	public static void main(String[] args) throws Exception {
+		System.out.println("  riders      ms/step   growth");
+		double previous = 0;
+		for (int riders : FIELD_SIZES) {
+			CyclingPortal portal = new CyclingPortal();
+			int raceId = buildRace(portal, riders);
+			int steps = (int) Math.max(5, RESULTS_PER_RUN / ((long) riders * STAGES));
+			timeSteps(portal, raceId, steps); // Warm up
+			double millis = timeSteps(portal, raceId, steps);
+			System.out.printf("%8d %12.3f %8s%n", riders, millis,
+					previous == 0 ? "" : String.format("x%.1f", millis / previous));
+			previous = millis;
+		}
+	}
+
+	/**
+	 * Creates a race with the given number of riders' results in each of its stages.
+	 *
+	 * @param portal the portal to create the race in
+	 * @param riders number of riders
+	 * @return ID of the race
+	 * @throws Exception If the portal rejects the race or results.
+	 */
+	private static int buildRace(CyclingPortal portal, int riders) throws Exception {
+		int teamId = portal.createTeam("team" + riders, "description");
+		int raceId = portal.createRace("race" + riders, "description");
+		int[] riderIds = new int[riders];
+		for (int i = 0; i < riders; i++) {
+			riderIds[i] = portal.createRider(teamId, "rider" + i, 1990);
+		}
+		for (int s = 0; s < STAGES; s++) {
+			int stageId = portal.addStageToRace(raceId, "stage" + riders + "-" + s, "description",
+					200, LocalDateTime.of(2022, 7, 1 + s, 10, 0), StageType.FLAT);
+			for (int i = 0; i < SEGMENTS; i++) {
+				if (i % 2 == 0) {
+					portal.addIntermediateSprintToStage(stageId, 20 + i * 40);
+				} else {
+					portal.addCategorizedClimbToStage(stageId, 20.0 + i * 40, SegmentType.C2, 4.0, 2.0);
+				}
+			}
+			portal.concludeStagePreparation(stageId);
+			for (int i = 0; i < riders; i++) {
+				portal.registerRiderResultsInStage(stageId, riderIds[i], checkpoints(i, s));
+			}
+		}
+		return raceId;
+	}
+
+	/**
+	 * Makes a rider's checkpoint times in a stage, spread out so that riders' places differ
+	 * from stage to stage and segment to segment.
+	 *
+	 * @param i the rider's position in the field
+	 * @param stage the stage's position in the race
+	 * @return the checkpoint times
+	 */
+	private static LocalTime[] checkpoints(int i, int stage) {
+		LocalTime[] checkpoints = new LocalTime[SEGMENTS + 2];
+		checkpoints[0] = LocalTime.of(10, 0);
+		for (int c = 1; c < checkpoints.length; c++) {
+			long seconds = 1200 + (i * 7919L + c * 104729L + stage * 15485863L) % 600;
+			checkpoints[c] = checkpoints[c - 1].plusSeconds(seconds);
+		}
+		return checkpoints;
+	}
+
+	/**
+	 * Times a number of steps. Each step deletes one rider's result in the last stage and
+	 * registers it again, then runs the six race classification queries.
+	 *
+	 * @param portal the portal
+	 * @param raceId ID of the race
+	 * @param steps number of steps to time
+	 * @return milliseconds per step
+	 * @throws Exception If the portal rejects a result.
+	 */
+	private static double timeSteps(CyclingPortal portal, int raceId, int steps) throws Exception {
+		int[] stageIds = portal.getRaceStages(raceId);
+		int stageId = stageIds[stageIds.length - 1];
+		int riderId = portal.getRidersRankInStage(stageId)[0];
+		LocalTime[] checkpoints = checkpoints(0, stageIds.length - 1);
+		long sink = 0;
+		long start = System.nanoTime();
+		for (int step = 0; step < steps; step++) {
+			portal.deleteRiderResultsInStage(stageId, riderId);
+			portal.registerRiderResultsInStage(stageId, riderId, checkpoints);
+			sink += portal.getRidersGeneralClassificationRank(raceId).length;
+			sink += portal.getGeneralClassificationTimesInRace(raceId).length;
+			sink += portal.getRidersPointsInRace(raceId).length;
+			sink += portal.getRidersMountainPointsInRace(raceId).length;
+			sink += portal.getRidersPointClassificationRank(raceId).length;
+			sink += portal.getRidersMountainPointClassificationRank(raceId).length;
+		}
+		long elapsed = System.nanoTime() - start;
+		if (sink == 0) {
+			System.out.println("The race was empty.");
+		}
+		return elapsed / 1e6 / steps;
+	}
+}
@@ -0,0 +1,149 @@
+import cycling.ConcurrentCyclingPortal;
+import cycling.ResultIngester;
+import cycling.StageType;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the latency of results going through a ResultIngester at a steady rate, 100,000
+ * results a second unless another rate is given. Several producer threads submit results on a
+ * fixed schedule, as timing mats would, parking between results rather than spinning so that
+ * they leave the processor to the ingester's writer. Two latencies are recorded for every
+ * result: how long submit took to return, and how long it was until the result's future
+ * completed, i.e. until the result was registered and the portal's snapshot published with
+ * it. The 50th, 99th and 99.9th percentiles of each are printed.
+ *
+ * <p>Latencies are measured from when each result was due to be submitted, not from when it
+ * actually was, so a producer falling behind schedule shows up in the figures rather than
+ * hiding them.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class ResultIngesterLatencyBenchmark {
+
+	private static final int PRODUCERS = 2;
+	private static final int RIDERS = 1000; // Riders with a result in each stage
+	private static final int STAGES = 50;
+	private static final int DEFAULT_RATE = 100_000; // Results submitted per second
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args the rate in results per second (100,000 if not given)
+	 * @throws Exception If the portal rejects the race or a result.
+	 */
+	public static void main(String[] args) throws Exception {
+		int rate = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RATE;
+		ConcurrentCyclingPortal portal = new ConcurrentCyclingPortal();
+		int teamId = portal.createTeam("team", "description");
+		int[] riderIds = new int[RIDERS];
+		for (int i = 0; i < RIDERS; i++) {
+			riderIds[i] = portal.createRider(teamId, "rider" + i, 1990);
+		}
+		ResultIngester ingester = new ResultIngester(portal);
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors, "
+				+ PRODUCERS + " producers, " + rate + " results/s");
+		for (int run = 0; run < 3; run++) {
+			// The first two runs warm up
+			run(portal, ingester, riderIds, rate, run, run == 2);
+		}
+		ingester.close();
+	}
+
+	/**
+	 * Submits a result for every rider in every stage of a new race at the given rate, then
+	 * waits for them all to be registered.
+	 *
+	 * @param portal the portal
+	 * @param ingester the ingester to submit results to
+	 * @param riderIds IDs of the riders
+	 * @param rate results submitted per second, across every producer
+	 * @param run number of the run, used to name the race
+	 * @param print true to print the latencies
+	 * @throws Exception If the portal rejects the race or a result.
+	 */
+	private static void run(ConcurrentCyclingPortal portal, ResultIngester ingester,
+			int[] riderIds, int rate, int run, boolean print) throws Exception {
+		int raceId = portal.createRace("race" + run, "description");
+		int[] stageIds = new int[STAGES];
+		for (int s = 0; s < STAGES; s++) {
+			stageIds[s] = portal.addStageToRace(raceId, "stage" + run + "-" + s, "description", 100,
+					LocalDateTime.of(2022, 7, 1, 10, 0).plusDays(s), StageType.FLAT);
+			portal.addIntermediateSprintToStage(stageIds[s], 50);
+			portal.concludeStagePreparation(stageIds[s]);
+		}
+
+		int perProducer = STAGES * RIDERS / PRODUCERS;
+		long interval = 1_000_000_000L * PRODUCERS / rate; // Between one producer's results
+		long[] submitLatencies = new long[STAGES * RIDERS];
+		long[] registerLatencies = new long[STAGES * RIDERS];
+		@SuppressWarnings("unchecked")
+		CompletableFuture<Long>[] outcomes = new CompletableFuture[STAGES * RIDERS];
+		long begin = System.nanoTime() + 10_000_000;
+		Thread[] producers = new Thread[PRODUCERS];
+		for (int p = 0; p < PRODUCERS; p++) {
+			int producer = p;
+			producers[p] = new Thread(() -> {
+				for (int k = 0; k < perProducer; k++) {
+					int result = producer * perProducer + k;
+					long due = begin + k * interval;
+					long wait = due - System.nanoTime();
+					if (wait > 0) {
+						LockSupport.parkNanos(wait);
+					}
+					int s = result / RIDERS;
+					int i = result % RIDERS;
+					outcomes[result] = ingester.submit(stageIds[s], riderIds[i], checkpoints(s, i))
+							.whenComplete((ignored, error) ->
+									registerLatencies[result] = System.nanoTime() - due);
+					submitLatencies[result] = System.nanoTime() - due;
+				}
+			});
+			producers[p].start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		for (CompletableFuture<Long> outcome : outcomes) {
+			outcome.get();
+		}
+		if (print) {
+			print("submit", submitLatencies);
+			print("register", registerLatencies);
+		}
+	}
+
+	/**
+	 * Prints the percentiles of some latencies.
+	 *
+	 * @param label what the latencies are of
+	 * @param latencies the latencies in nanoseconds, sorted in place
+	 */
+	private static void print(String label, long[] latencies) {
+		Arrays.sort(latencies);
+		System.out.printf("%-9s p50 %8.1f us   p99 %8.1f us   p999 %8.1f us   max %8.1f us%n",
+				label, latencies[latencies.length / 2] / 1e3,
+				latencies[(int) (latencies.length * 0.99)] / 1e3,
+				latencies[(int) (latencies.length * 0.999)] / 1e3,
+				latencies[latencies.length - 1] / 1e3);
+	}
+
+	/**
+	 * Makes a rider's checkpoint times in a stage.
+	 *
+	 * @param stage the stage's position in the race
+	 * @param i the rider's position in the field
+	 * @return the checkpoint times
+	 */
+	private static LocalTime[] checkpoints(int stage, int i) {
+		LocalTime start = LocalTime.of(10, 0);
+		long seed = i * 7919L + stage * 104729L;
+		return new LocalTime[] {start, start.plusSeconds(1800 + seed % 900),
+			start.plusSeconds(7200 + (seed * 31) % 3600)};
+	}
+}
@@ -0,0 +1,26 @@
+package cycling;
+
+/**
+ * The classifications riders are ranked by across a race.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public enum ClassificationType {
+
+  /**
+   * The general classification, ascending by total adjusted elapsed time.
+   */
+  GENERAL,
+
+  /**
+   * The points classification, descending by total (sprint) points.
+   */
+  POINTS,
+
+  /**
+   * The mountain classification, descending by total mountain points.
+   */
+  MOUNTAIN;
+}
@@ -9,6 +9,8 @@ package cycling;
  */
 public class ClimbSegment extends Segment {
 
+  private static final long serialVersionUID = 7153183865410661868L;
+
   private double averageGradient;
   private double length;
 
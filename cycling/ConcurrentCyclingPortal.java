@@ -0,0 +1,1686 @@
+package cycling;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A CyclingPortal that can be shared between threads, where different races can have results
+ * registered and be queried at the same time.
+ *
+ * <p>Every race has a read/write lock, shared with other races when there are more races than
+ * locks. Registering or deleting results and concluding a stage's preparation hold the write
+ * lock of the stage's race, and queries about a stage or a race hold its read lock, so they
+ * only ever wait for calls on the same race. The teams, riders and the lists of races, stages
+ * and segments are shared by every race, so calls that change them (creating or removing
+ * anything, erasing, saving and loading the portal) hold the portal's write lock and run on
+ * their own. Every other call holds the portal's read lock, taken before any race's lock.
+ *
+ * <p>Every change publishes a PortalSnapshot of every race's classifications before it
+ * returns. Readers that only need classifications can query the latest snapshot from
+ * getSnapshot without taking any lock, so they never hold up changes and never see one half
+ * done. While a change still holds its locks it only takes the rankings of the affected races'
+ * stages, which never change and only need working out again for the stages that changed. The
+ * races' classifications are worked out from those rankings, and the snapshot published, once
+ * the locks have been released, so the next change to the race doesn't wait for them. Only
+ * the races a change could affect are worked out again, everything else is shared with the
+ * previous snapshot. Each change is published as a single version, which the changing thread
+ * can get from getPublishedVersion. A ResultIngester registers a whole batch of results before
+ * publishing one version for every race the batch changed. A fixed number of recent snapshots
+ * can also be kept, so the classifications can be asked for as they were at an earlier version
+ * or time with getSnapshotAsOf.
+ *
+ * <p>Queries still bring the caches kept by stages and races (rankings, points and the GC)
+ * up to date when they are read. The stages, races and general classifications do that under
+ * their own locks, so concurrent queries on the same race never see a half updated cache.
+ * Because of those cache updates queries can't be run optimistically and retried, so plain
+ * read locks are used rather than a StampedLock's optimistic reads.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class ConcurrentCyclingPortal implements CyclingPortalInterface {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int DEFAULT_RACE_LOCKS = 64; // Races that can be used at once by default
+
+  private final CyclingPortal portal; // Portal every call is passed to
+
+  private final ReentrantReadWriteLock lock
+      = new ReentrantReadWriteLock(); // Held for writing by changes to entities shared by races
+
+  private final ReentrantReadWriteLock[] raceLocks; // Race with ID i uses lock i % length
+
+  private final int historyLength; // Number of recent snapshots kept, 0 for none
+
+  private final transient AtomicReference<PortalSnapshot> snapshot
+      = new AtomicReference<PortalSnapshot>(new PortalSnapshot()); // Latest snapshot published
+
+  private final transient SnapshotHistory history; // Recent snapshots, null if none are kept
+
+  private final transient AtomicLong captures
+      = new AtomicLong(); // Number of times races' rankings have been taken, see Capture
+
+  private final transient ThreadLocal<Long> publishedVersion = ThreadLocal.withInitial(
+      () -> 0L); // Version published by each thread's last change, see getPublishedVersion
+
+  /**
+   * The rankings of the stages of one or every race, taken while a change still held its
+   * locks, which the races' standings are worked out from once the locks are released.
+   * Changes to different races, or finishing at about the same time, may publish their
+   * snapshots in a different order to the one they took their rankings in, so each capture is
+   * stamped with the order it was taken in and a snapshot never goes back to older rankings.
+   */
+  private static class Capture {
+    private final int[] raceIds; // IDs of the races whose rankings were taken
+    private final long[] stamps; // Order each race's rankings were taken in
+    private final ArrayList<ArrayList<StageRankings>> rankings; // Rankings of each race's stages
+    private final long floor; // Order every race was taken in if they all were, otherwise 0
+
+    /**
+     * Constructor for the Capture class.
+     *
+     * @param raceIds IDs of the races whose rankings were taken
+     * @param stamps order each race's rankings were taken in
+     * @param rankings rankings of each race's stages, in the same order as the IDs
+     * @param floor order every race in the portal was taken in, so races left out have gone,
+     *              or 0 if only some races were taken
+     */
+    private Capture(int[] raceIds, long[] stamps, ArrayList<ArrayList<StageRankings>> rankings,
+        long floor) {
+      this.raceIds = raceIds;
+      this.stamps = stamps;
+      this.rankings = rankings;
+      this.floor = floor;
+    }
+  }
+
+  /**
+   * Constructor for the ConcurrentCyclingPortal class, with enough race locks that up to 64
+   * races with consecutive IDs never share one, and without a history of snapshots.
+   */
+  public ConcurrentCyclingPortal() {
+    this(DEFAULT_RACE_LOCKS);
+  }
+
+  /**
+   * Constructor for the ConcurrentCyclingPortal class, without a history of snapshots.
+   *
+   * @param raceLockCount number of race locks, races with consecutive IDs only share a lock
+   *                      when there are more of them than this
+   */
+  public ConcurrentCyclingPortal(int raceLockCount) {
+    this(raceLockCount, 0);
+  }
+
+  /**
+   * Constructor for the ConcurrentCyclingPortal class.
+   *
+   * @param raceLockCount number of race locks, races with consecutive IDs only share a lock
+   *                      when there are more of them than this
+   * @param historyLength number of recent snapshots to keep for getSnapshotAsOf, 0 for none
+   */
+  public ConcurrentCyclingPortal(int raceLockCount, int historyLength) {
+    this(raceLockCount, historyLength, new CyclingPortal());
+  }
+
+  /**
+   * Constructor for the ConcurrentCyclingPortal class, around an existing portal.
+   *
+   * @param raceLockCount number of race locks
+   * @param historyLength number of recent snapshots to keep, 0 for none
+   * @param portal the portal every call is passed to
+   */
+  private ConcurrentCyclingPortal(int raceLockCount, int historyLength, CyclingPortal portal) {
+    if (raceLockCount < 1) {
+      throw new IllegalArgumentException("There must be at least one race lock.");
+    }
+    if (historyLength < 0) {
+      throw new IllegalArgumentException("A history can't have a negative length.");
+    }
+    this.portal = portal;
+    this.historyLength = historyLength;
+    history = historyLength > 0 ? new SnapshotHistory(historyLength) : null;
+    if (history != null) {
+      history.record(snapshot.get());
+    }
+    raceLocks = new ReentrantReadWriteLock[raceLockCount];
+    for (int i = 0; i < raceLockCount; i++) {
+      raceLocks[i] = new ReentrantReadWriteLock();
+    }
+  }
+
+  /**
+   * Replaces a deserialized portal with a new one around the same CyclingPortal. Snapshots
+   * are worked out from the portal rather than serialized, so the new portal starts a new
+   * history and publishes a snapshot of the portal as it was loaded.
+   *
+   * @return the portal to use in place of the deserialized one
+   */
+  private Object readResolve() {
+    ConcurrentCyclingPortal resolved
+        = new ConcurrentCyclingPortal(raceLocks.length, historyLength, portal);
+    Capture capture;
+    resolved.lock.writeLock().lock();
+    try {
+      capture = resolved.captureAll();
+    } finally {
+      resolved.lock.writeLock().unlock();
+    }
+    resolved.publish(capture);
+    return resolved;
+  }
+
+  /**
+   * Takes the locks needed to use a race: the portal's read lock, so nothing the race uses can
+   * be removed, then the race's own lock. They are released by unlock.
+   *
+   * @param raceId ID of the race, which doesn't have to exist
+   * @param write true to take the race's write lock, false to take its read lock
+   * @return the race lock that was taken
+   */
+  private Lock lockRace(int raceId, boolean write) {
+    lock.readLock().lock();
+    Lock raceLock = raceLock(raceId, write);
+    raceLock.lock();
+    return raceLock;
+  }
+
+  /**
+   * Takes the locks needed to use the race a stage belongs to, see lockRace. Will throw an
+   * IDNotRecognisedException, holding no locks, if the stage doesn't exist.
+   *
+   * @param stageId ID of the stage
+   * @param write true to take the race's write lock, false to take its read lock
+   * @return the race lock that was taken
+   */
+  private Lock lockStage(int stageId, boolean write) throws IDNotRecognisedException {
+    lock.readLock().lock();
+    Lock raceLock;
+    try {
+      raceLock = raceLock(portal.getStageRaceId(stageId), write);
+    } catch (IDNotRecognisedException | RuntimeException e) {
+      lock.readLock().unlock();
+      throw e;
+    }
+    raceLock.lock();
+    return raceLock;
+  }
+
+  /**
+   * Gets the read or write half of the lock a race uses.
+   *
+   * @param raceId ID of the race
+   * @param write true for the write lock, false for the read lock
+   * @return the lock, not yet taken
+   */
+  private Lock raceLock(int raceId, boolean write) {
+    ReentrantReadWriteLock raceLock = raceLocks[Math.floorMod(raceId, raceLocks.length)];
+    return write ? raceLock.writeLock() : raceLock.readLock();
+  }
+
+  /**
+   * Gets the latest snapshot of the portal's classifications, without taking any lock. The
+   * snapshot never changes, later changes to the portal are published in new snapshots.
+   *
+   * @return the latest snapshot, which includes every change that has returned
+   */
+  public PortalSnapshot getSnapshot() {
+    return snapshot.get();
+  }
+
+  /**
+   * Gets the version of the first snapshot that includes the calling thread's last change to
+   * the portal, e.g. to look the change up later with getSnapshotAsOf. Changes to teams and
+   * riders alone don't affect any classification and leave it as it was.
+   *
+   * @return the version, 0 if the thread hasn't changed the portal
+   */
+  public long getPublishedVersion() {
+    return publishedVersion.get();
+  }
+
+  /**
+   * Gets the snapshot of the portal's classifications with a given version, e.g. to see them
+   * as they were before a result was corrected. Doesn't take any lock.
+   *
+   * @param version version of the snapshot, see PortalSnapshot.getVersion
+   * @return the snapshot, or null if that version hasn't been published yet or is older than
+   *         the snapshots kept
+   * @throws IllegalStateException If the portal was made without a history.
+   */
+  public PortalSnapshot getSnapshotAsOf(long version) {
+    if (history == null) {
+      throw new IllegalStateException("The portal was made without a history of snapshots.");
+    }
+    return history.get(version);
+  }
+
+  /**
+   * Gets the snapshot of the portal's classifications as they were at a given time, i.e. the
+   * latest snapshot published at or before it. Doesn't take any lock.
+   *
+   * @param time the time of interest
+   * @return the snapshot, or null if the time is older than the snapshots kept
+   * @throws IllegalStateException If the portal was made without a history.
+   */
+  public PortalSnapshot getSnapshotAsOf(Instant time) {
+    if (history == null) {
+      throw new IllegalStateException("The portal was made without a history of snapshots.");
+    }
+    return history.getAt(time);
+  }
+
+  /**
+   * Takes the current rankings of a race's stages, to publish once the race's lock has been
+   * released. Must be called holding the race's write lock, so the race can't change while
+   * they are taken.
+   *
+   * @param raceId ID of the race that changed
+   * @return the rankings taken
+   * @throws IDNotRecognisedException If the race doesn't exist.
+   */
+  private Capture captureRace(int raceId) throws IDNotRecognisedException {
+    ArrayList<ArrayList<StageRankings>> rankings = new ArrayList<ArrayList<StageRankings>>();
+    rankings.add(portal.getRaceRankings(raceId));
+    return new Capture(new int[] {raceId}, new long[] {captures.incrementAndGet()}, rankings,
+        0);
+  }
+
+  /**
+   * Takes the current rankings of every race's stages, after a change that could affect any
+   * race, to publish once the portal's lock has been released. Must be called holding the
+   * portal's write lock.
+   *
+   * @return the rankings taken
+   */
+  private Capture captureAll() {
+    int[] raceIds = portal.getRaceIds();
+    ArrayList<ArrayList<StageRankings>> rankings = new ArrayList<ArrayList<StageRankings>>();
+    for (int raceId : raceIds) {
+      try {
+        rankings.add(portal.getRaceRankings(raceId));
+      } catch (IDNotRecognisedException e) {
+        throw new IllegalStateException("Race " + raceId + " was listed but not found.", e);
+      }
+    }
+    long stamp = captures.incrementAndGet();
+    long[] stamps = new long[raceIds.length];
+    Arrays.fill(stamps, stamp);
+    return new Capture(raceIds, stamps, rankings, stamp);
+  }
+
+  /**
+   * Works out the standings of the races in a capture and publishes a new snapshot with them,
+   * as a single version, without holding any lock. Races changed at the same time by other
+   * threads publish their own snapshots, so the new snapshot is retried on top of theirs until
+   * it is published. A race whose rankings have been published from a later capture keeps
+   * them, since they already include the change.
+   *
+   * @param capture the rankings taken while the change held its locks
+   * @return version of the first snapshot that includes the change
+   */
+  private long publish(Capture capture) {
+    RaceStandings[] standings = new RaceStandings[capture.raceIds.length];
+    for (int i = 0; i < standings.length; i++) {
+      standings[i] = new RaceStandings(capture.rankings.get(i));
+    }
+    PortalSnapshot current;
+    PortalSnapshot next;
+    do {
+      current = snapshot.get();
+      next = capture.floor > 0
+          ? current.withAllRaces(capture.raceIds, standings, capture.floor)
+          : current.withRaces(capture.raceIds, standings, capture.stamps);
+    } while (!snapshot.compareAndSet(current, next));
+    if (history != null && next != current) {
+      history.record(next);
+    }
+    publishedVersion.set(next.getVersion());
+    return next.getVersion();
+  }
+
+  /**
+   * Registers riders' results in a stage like
+   * {@link #registerRiderResultsInStage(int, int[], LocalTime[][])}, but without publishing a
+   * snapshot, so a ResultIngester can publish once for a whole batch with publishRaces.
+   *
+   * @param stageId The ID of the stage the results refer to.
+   * @param riderIds The IDs of the riders, one per result.
+   * @param checkpoints Each rider's checkpoint times, in the same order as the IDs.
+   * @param changedRaces the IDs of races changed by the batch, which the stage's race is
+   *                     added to
+   * @return The exception each result failed with, null for results that were registered.
+   * @throws IDNotRecognisedException If the ID does not match to any stage in the system.
+   * @throws InvalidStageStateException If the stage is not waiting for results.
+   */
+  Exception[] registerRiderResultsInStage(int stageId, int[] riderIds,
+      LocalTime[][] checkpoints, HashSet<Integer> changedRaces)
+      throws IDNotRecognisedException, InvalidStageStateException {
+    Lock raceLock = lockStage(stageId, true);
+    try {
+      Exception[] errors = portal.registerRiderResultsInStage(stageId, riderIds, checkpoints);
+      changedRaces.add(portal.getStageRaceId(stageId));
+      return errors;
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Publishes a snapshot with some races' classifications worked out again, after changes
+   * made to them without publishing. The changes have already been made, so each race's
+   * rankings are taken holding only its read lock. Races removed since are left out, their
+   * removal published a snapshot without them.
+   *
+   * @param raceIds IDs of the races that changed
+   * @return version of the first snapshot that includes the changes
+   */
+  long publishRaces(HashSet<Integer> raceIds) {
+    int[] taken = new int[raceIds.size()];
+    long[] stamps = new long[raceIds.size()];
+    ArrayList<ArrayList<StageRankings>> rankings = new ArrayList<ArrayList<StageRankings>>();
+    int count = 0;
+    for (int raceId : raceIds) {
+      Lock raceLock = lockRace(raceId, false);
+      try {
+        rankings.add(portal.getRaceRankings(raceId));
+        taken[count] = raceId;
+        stamps[count++] = captures.incrementAndGet();
+      } catch (IDNotRecognisedException e) {
+        // The race has been removed since the batch changed it
+      } finally {
+        unlock(raceLock);
+      }
+    }
+    return publish(new Capture(Arrays.copyOf(taken, count), Arrays.copyOf(stamps, count),
+        rankings, 0));
+  }
+
+  /**
+   * Releases the locks taken by lockRace or lockStage.
+   *
+   * @param raceLock the race lock that was taken
+   */
+  private void unlock(Lock raceLock) {
+    raceLock.unlock();
+    lock.readLock().unlock();
+  }
+
+  @Override
+  public int[] getRaceIds() {
+    lock.readLock().lock();
+    try {
+      return portal.getRaceIds();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int createRace(String name, String description)
+      throws IllegalNameException, InvalidNameException {
+    int result;
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      result = portal.createRace(name, description);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+    return result;
+  }
+
+  /**
+   * Runs {@link CyclingPortal#createRaces(String[], String[])} while holding the portal's write
+   * lock.
+   *
+   * @param names Race names, each must be unique in the system and within the array.
+   * @param descriptions Race descriptions, one per name.
+   * @return The IDs of the created races, in the same order as the names.
+   * @throws IllegalNameException If a name already exists in the platform or is repeated.
+   * @throws InvalidNameException If a name is null, empty, has more than 30 characters, or has
+   *                              white spaces.
+   */
+  public int[] createRaces(String[] names, String[] descriptions)
+      throws IllegalNameException, InvalidNameException {
+    int[] result;
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      result = portal.createRaces(names, descriptions);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+    return result;
+  }
+
+  @Override
+  public String viewRaceDetails(int raceId) throws IDNotRecognisedException {
+    lock.readLock().lock();
+    try {
+      return portal.viewRaceDetails(raceId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeRaceById(int raceId) throws IDNotRecognisedException {
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      portal.removeRaceById(raceId);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+  }
+
+  @Override
+  public int getNumberOfStages(int raceId) throws IDNotRecognisedException {
+    lock.readLock().lock();
+    try {
+      return portal.getNumberOfStages(raceId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int addStageToRace(int raceId, String stageName, String description, double length,
+      LocalDateTime startTime, StageType type)
+      throws IDNotRecognisedException, IllegalNameException, InvalidNameException,
+      InvalidLengthException {
+    int result;
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      result = portal.addStageToRace(raceId, stageName, description, length, startTime, type);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+    return result;
+  }
+
+  /**
+   * Runs {@link CyclingPortal#addStagesToRace(int, String[], String[], double[], LocalDateTime[],
+   * StageType[])} while holding the portal's write lock.
+   *
+   * @param raceId The ID of the race the stages are added to.
+   * @param stageNames Stage names, each must be unique in the system and within the array.
+   * @param descriptions Stage descriptions, one per name.
+   * @param lengths Stage lengths in kilometres, one per name.
+   * @param startTimes Date and time each stage starts, one per name.
+   * @param types The type of each stage, one per name.
+   * @return The IDs of the created stages, in the same order as the names.
+   * @throws IDNotRecognisedException If the ID does not match to any race in the system.
+   * @throws IllegalNameException If a name already exists in the platform or is repeated.
+   * @throws InvalidNameException If a name is null, empty, has more than 30 characters, or has
+   *                              white spaces.
+   * @throws InvalidLengthException If a length is less than 5km.
+   */
+  public int[] addStagesToRace(int raceId, String[] stageNames, String[] descriptions,
+      double[] lengths, LocalDateTime[] startTimes, StageType[] types)
+      throws IDNotRecognisedException, IllegalNameException, InvalidNameException,
+      InvalidLengthException {
+    int[] result;
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      result = portal.addStagesToRace(raceId, stageNames, descriptions, lengths, startTimes, types);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+    return result;
+  }
+
+  @Override
+  public int[] getRaceStages(int raceId) throws IDNotRecognisedException {
+    lock.readLock().lock();
+    try {
+      return portal.getRaceStages(raceId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public double getStageLength(int stageId) throws IDNotRecognisedException {
+    lock.readLock().lock();
+    try {
+      return portal.getStageLength(stageId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getStageRaceId(int)} while holding the portal's read lock.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return The ID of the race the stage is part of.
+   * @throws IDNotRecognisedException If the ID does not match to any stage in the system.
+   */
+  public int getStageRaceId(int stageId) throws IDNotRecognisedException {
+    lock.readLock().lock();
+    try {
+      return portal.getStageRaceId(stageId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeStageById(int stageId) throws IDNotRecognisedException {
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      portal.removeStageById(stageId);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+  }
+
+  @Override
+  public int addCategorizedClimbToStage(int stageId, Double location, SegmentType type,
+      Double averageGradient, Double length)
+      throws IDNotRecognisedException, InvalidLocationException, InvalidStageStateException,
+      InvalidStageTypeException {
+    int result;
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      result = portal.addCategorizedClimbToStage(stageId, location, type, averageGradient, length);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+    return result;
+  }
+
+  /**
+   * Runs {@link CyclingPortal#addCategorizedClimbsToStage(int, double[], SegmentType[], double[],
+   * double[])} while holding the portal's write lock.
+   *
+   * @param stageId The ID of the stage the climbs are added to.
+   * @param locations The kilometre location where each climb finishes within the stage.
+   * @param types The category of each climb.
+   * @param averageGradients The average gradient of each climb.
+   * @param lengths The length of each climb in kilometres.
+   * @return The IDs of the created segments, in the same order as the locations.
+   * @throws IDNotRecognisedException If the ID does not match to any stage in the system.
+   * @throws InvalidLocationException If a location is out of bounds of the stage length.
+   * @throws InvalidStageStateException If the stage is "waiting for results".
+   * @throws InvalidStageTypeException Time-trial stages cannot contain any segment.
+   */
+  public int[] addCategorizedClimbsToStage(int stageId, double[] locations, SegmentType[] types,
+      double[] averageGradients, double[] lengths)
+      throws IDNotRecognisedException, InvalidLocationException, InvalidStageStateException,
+      InvalidStageTypeException {
+    int[] result;
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      result = portal.addCategorizedClimbsToStage(stageId, locations, types, averageGradients,
+          lengths);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+    return result;
+  }
+
+  @Override
+  public int addIntermediateSprintToStage(int stageId, double location)
+      throws IDNotRecognisedException, InvalidLocationException, InvalidStageStateException,
+      InvalidStageTypeException {
+    int result;
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      result = portal.addIntermediateSprintToStage(stageId, location);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+    return result;
+  }
+
+  /**
+   * Runs {@link CyclingPortal#addIntermediateSprintsToStage(int, double[])} while holding the
+   * portal's write lock.
+   *
+   * @param stageId The ID of the stage the sprints are added to.
+   * @param locations The kilometre location where each sprint finishes within the stage.
+   * @return The IDs of the created segments, in the same order as the locations.
+   * @throws IDNotRecognisedException If the ID does not match to any stage in the system.
+   * @throws InvalidLocationException If a location is out of bounds of the stage length.
+   * @throws InvalidStageStateException If the stage is "waiting for results".
+   * @throws InvalidStageTypeException Time-trial stages cannot contain any segment.
+   */
+  public int[] addIntermediateSprintsToStage(int stageId, double[] locations)
+      throws IDNotRecognisedException, InvalidLocationException, InvalidStageStateException,
+      InvalidStageTypeException {
+    int[] result;
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      result = portal.addIntermediateSprintsToStage(stageId, locations);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+    return result;
+  }
+
+  @Override
+  public void removeSegment(int segmentId)
+      throws IDNotRecognisedException, InvalidStageStateException {
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      portal.removeSegment(segmentId);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+  }
+
+  @Override
+  public void concludeStagePreparation(int stageId)
+      throws IDNotRecognisedException, InvalidStageStateException {
+    Capture capture;
+    Lock raceLock = lockStage(stageId, true);
+    try {
+      portal.concludeStagePreparation(stageId);
+      capture = captureRace(portal.getStageRaceId(stageId));
+    } finally {
+      unlock(raceLock);
+    }
+    publish(capture);
+  }
+
+  @Override
+  public int[] getStageSegments(int stageId) throws IDNotRecognisedException {
+    lock.readLock().lock();
+    try {
+      return portal.getStageSegments(stageId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int createTeam(String name, String description)
+      throws IllegalNameException, InvalidNameException {
+    lock.writeLock().lock();
+    try {
+      return portal.createTeam(name, description);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#createTeams(String[], String[])} while holding the portal's write
+   * lock.
+   *
+   * @param names Team names, each must be unique in the system and within the array.
+   * @param descriptions Team descriptions, one per name.
+   * @return The IDs of the created teams, in the same order as the names.
+   * @throws IllegalNameException If a name already exists in the platform or is repeated.
+   * @throws InvalidNameException If a name is null, empty, has more than 30 characters, or has
+   *                              white spaces.
+   */
+  public int[] createTeams(String[] names, String[] descriptions)
+      throws IllegalNameException, InvalidNameException {
+    lock.writeLock().lock();
+    try {
+      return portal.createTeams(names, descriptions);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeTeam(int teamId) throws IDNotRecognisedException {
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      portal.removeTeam(teamId);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+  }
+
+  @Override
+  public int[] getTeams() {
+    lock.readLock().lock();
+    try {
+      return portal.getTeams();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int[] getTeamRiders(int teamId) throws IDNotRecognisedException {
+    lock.readLock().lock();
+    try {
+      return portal.getTeamRiders(teamId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int createRider(int teamId, String name, int yearOfBirth)
+      throws IDNotRecognisedException, IllegalArgumentException {
+    lock.writeLock().lock();
+    try {
+      return portal.createRider(teamId, name, yearOfBirth);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#createRiders(int[], String[], int[])} while holding the portal's
+   * write lock.
+   *
+   * @param teamIds The ID of the team each rider belongs to.
+   * @param names The name of each rider.
+   * @param yearsOfBirth The year of birth of each rider.
+   * @return The IDs of the created riders, in the same order as the names.
+   * @throws IDNotRecognisedException If a team ID does not match any team in the system.
+   * @throws IllegalArgumentException If a name is null, a year of birth is less than 1900, or
+   *                                  the arrays have different lengths.
+   */
+  public int[] createRiders(int[] teamIds, String[] names, int[] yearsOfBirth)
+      throws IDNotRecognisedException, IllegalArgumentException {
+    lock.writeLock().lock();
+    try {
+      return portal.createRiders(teamIds, names, yearsOfBirth);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeRider(int riderId) throws IDNotRecognisedException {
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      portal.removeRider(riderId);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+  }
+
+  @Override
+  public void registerRiderResultsInStage(int stageId, int riderId, LocalTime... checkpoints)
+      throws IDNotRecognisedException, DuplicatedResultException, InvalidCheckpointsException,
+      InvalidStageStateException {
+    Capture capture;
+    Lock raceLock = lockStage(stageId, true);
+    try {
+      portal.registerRiderResultsInStage(stageId, riderId, checkpoints);
+      capture = captureRace(portal.getStageRaceId(stageId));
+    } finally {
+      unlock(raceLock);
+    }
+    publish(capture);
+  }
+
+  /**
+   * Runs {@link CyclingPortal#registerRiderResultsInStage(int, int[], LocalTime[][])} while holding
+   * the write lock of the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage the results are being registered to.
+   * @param riderIds The ID of the rider on each row.
+   * @param checkpoints The checkpoint times on each row, in the same format as
+   *        {@link #registerRiderResultsInStage(int, int, LocalTime...)}.
+   * @return For each row, null if the results were registered, otherwise the
+   *         IDNotRecognisedException, DuplicatedResultException or
+   *         InvalidCheckpointsException explaining why they weren't.
+   * @throws IDNotRecognisedException If the ID does not match to any stage in the
+   *                                  system. Nothing is registered.
+   * @throws InvalidStageStateException Thrown when the stage is not "waiting for
+   *                                    results". Nothing is registered.
+   */
+  public Exception[] registerRiderResultsInStage(int stageId, int[] riderIds,
+      LocalTime[][] checkpoints) throws IDNotRecognisedException, InvalidStageStateException {
+    Exception[] result;
+    Capture capture;
+    Lock raceLock = lockStage(stageId, true);
+    try {
+      result = portal.registerRiderResultsInStage(stageId, riderIds, checkpoints);
+      capture = captureRace(portal.getStageRaceId(stageId));
+    } finally {
+      unlock(raceLock);
+    }
+    publish(capture);
+    return result;
+  }
+
+  @Override
+  public LocalTime[] getRiderResultsInStage(int stageId, int riderId)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRiderResultsInStage(stageId, riderId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRiderResultsInStageNanos(int, int)} while holding the read lock of
+   * the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage the result refers to.
+   * @param riderId The ID of the rider.
+   * @return An array of the rider's time of day at each segment, in nanoseconds since
+   *         midnight, followed by their total elapsed time in nanoseconds. An empty array is
+   *         returned in the case in which there is no result registered for the rider in the
+   *         stage.
+   * @throws IDNotRecognisedException If the ID does not match to any rider or stage in the
+   *                                  system.
+   */
+  public long[] getRiderResultsInStageNanos(int stageId, int riderId)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRiderResultsInStageNanos(stageId, riderId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRiderResultsInStageNanos(int, int, long[], int)} while holding the
+   * read lock of the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage the result refers to.
+   * @param riderId The ID of the rider.
+   * @param buffer The array to write the times into, in the same order as
+   *               getRiderResultsInStageNanos.
+   * @param offset The position in the buffer to write the first time to.
+   * @return The number of times written, 0 if there is no result registered for the rider in
+   *         the stage.
+   * @throws IDNotRecognisedException If the ID does not match to any rider or stage in the
+   *                                  system.
+   * @throws IndexOutOfBoundsException If the buffer has no room for the times at the offset.
+   */
+  public int getRiderResultsInStageNanos(int stageId, int riderId, long[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRiderResultsInStageNanos(stageId, riderId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public LocalTime getRiderAdjustedElapsedTimeInStage(int stageId, int riderId)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRiderAdjustedElapsedTimeInStage(stageId, riderId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRiderAdjustedElapsedTimeInStageNanos(int, int)} while holding the
+   * read lock of the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage the result refers to.
+   * @param riderId The ID of the rider.
+   * @return The adjusted elapsed time for the rider in the stage in nanoseconds, or -1 if
+   *         there is no result registered for the rider in the stage.
+   * @throws IDNotRecognisedException If the ID does not match to any rider or stage in the
+   *                                  system.
+   */
+  public long getRiderAdjustedElapsedTimeInStageNanos(int stageId, int riderId)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRiderAdjustedElapsedTimeInStageNanos(stageId, riderId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public void deleteRiderResultsInStage(int stageId, int riderId) throws IDNotRecognisedException {
+    Capture capture;
+    Lock raceLock = lockStage(stageId, true);
+    try {
+      portal.deleteRiderResultsInStage(stageId, riderId);
+      capture = captureRace(portal.getStageRaceId(stageId));
+    } finally {
+      unlock(raceLock);
+    }
+    publish(capture);
+  }
+
+  @Override
+  public int[] getRidersRankInStage(int stageId) throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRidersRankInStage(stageId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersRankInStage(int, int[], int)} while holding the read lock of
+   * the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersRankInStage(int stageId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRidersRankInStage(stageId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersRankInStage(int, IntBuffer)} while holding the read lock of
+   * the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersRankInStage(int stageId, IntBuffer buffer) throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRidersRankInStage(stageId, buffer);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public LocalTime[] getRankedAdjustedElapsedTimesInStage(int stageId)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRankedAdjustedElapsedTimesInStage(stageId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRiderRankInStage(int, int)} while holding the read lock of the
+   * race the stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param riderId The ID of the rider.
+   * @return The rider's rank (1 for the winner), adjusted elapsed time and time behind the
+   *         winner. Null if there is no result registered for the rider in the stage.
+   * @throws IDNotRecognisedException If the ID does not match to any rider or stage in the
+   *                                  system.
+   */
+  public RiderRank getRiderRankInStage(int stageId, int riderId) throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRiderRankInStage(stageId, riderId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getStageGroups(int)} while holding the read lock of the race the
+   * stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return The stage's groups: where each starts in the order returned by
+   *         {@link #getRidersRankInStage(int)}, how many riders are in it, and how far it
+   *         finished behind the leading group. No groups if there is no result for the stage.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   */
+  public StageGroups getStageGroups(int stageId) throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getStageGroups(stageId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getTopRidersInStage(int, int)} while holding the read lock of the
+   * race the stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param k The number of leading riders to get.
+   * @return The IDs of the first k riders sorted by their elapsed time, or of every rider in
+   *         the stage if there are fewer than k. An empty list if there is no result for the
+   *         stage.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws IllegalArgumentException If k is negative.
+   */
+  public int[] getTopRidersInStage(int stageId, int k) throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getTopRidersInStage(stageId, k);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRankedAdjustedElapsedTimesInStageNanos(int)} while holding the
+   * read lock of the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return The ranked list of adjusted elapsed times sorted by their finish time, in
+   *         nanoseconds. An empty list if there is no result for the stage.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   */
+  public long[] getRankedAdjustedElapsedTimesInStageNanos(int stageId)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRankedAdjustedElapsedTimesInStageNanos(stageId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRankedAdjustedElapsedTimesInStageNanos(int, long[], int)} while
+   * holding the read lock of the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The array to write the adjusted elapsed times into, sorted by finish time.
+   * @param offset The position in the buffer to write the first time to.
+   * @return The number of times written, i.e. the number of riders with results in the stage.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws IndexOutOfBoundsException If the buffer has no room for the times at the offset.
+   */
+  public int getRankedAdjustedElapsedTimesInStageNanos(int stageId, long[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRankedAdjustedElapsedTimesInStageNanos(stageId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public int[] getRidersPointsInStage(int stageId) throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRidersPointsInStage(stageId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersPointsInStage(int, int[], int)} while holding the read lock
+   * of the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersPointsInStage(int stageId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRidersPointsInStage(stageId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersPointsInStage(int, IntBuffer)} while holding the read lock
+   * of the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersPointsInStage(int stageId, IntBuffer buffer) throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRidersPointsInStage(stageId, buffer);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public int[] getRidersMountainPointsInStage(int stageId) throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRidersMountainPointsInStage(stageId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersMountainPointsInStage(int, int[], int)} while holding the
+   * read lock of the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersMountainPointsInStage(int stageId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRidersMountainPointsInStage(stageId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersMountainPointsInStage(int, IntBuffer)} while holding the
+   * read lock of the race the stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersMountainPointsInStage(int stageId, IntBuffer buffer)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockStage(stageId, false);
+    try {
+      return portal.getRidersMountainPointsInStage(stageId, buffer);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public void eraseCyclingPortal() {
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      portal.eraseCyclingPortal();
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+  }
+
+  @Override
+  public void saveCyclingPortal(String filename) throws IOException {
+    lock.writeLock().lock();
+    try {
+      portal.saveCyclingPortal(filename);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void loadCyclingPortal(String filename) throws IOException, ClassNotFoundException {
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      portal.loadCyclingPortal(filename);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+  }
+
+  @Override
+  public void removeRaceByName(String name) throws NameNotRecognisedException {
+    Capture capture;
+    lock.writeLock().lock();
+    try {
+      portal.removeRaceByName(name);
+      capture = captureAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    publish(capture);
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRaceStandings(int)} while holding the race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return The race's standings, which are not affected by later changes to the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   */
+  public RaceStandings getRaceStandings(int raceId) throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRaceStandings(raceId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRiderGCRank(int, int)} while holding the race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param riderId The ID of the rider.
+   * @return The rider's GC rank (1 for the leader), total adjusted elapsed time and time
+   *         behind the leader. Null if there is no result for the rider in any stage of the
+   *         race.
+   * @throws IDNotRecognisedException If the ID does not match to any rider or race in the
+   *                                  system.
+   */
+  public RiderRank getRiderGCRank(int raceId, int riderId) throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRiderGCRank(raceId, riderId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getTopRidersInRace(int, ClassificationType, int)} while holding the
+   * race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param classification The classification to rank the riders by.
+   * @param k The number of leading riders to get.
+   * @return The IDs of the first k riders in the classification, or of every rider in the
+   *         race if there are fewer than k. An empty list if there is no result for any
+   *         stage in the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IllegalArgumentException If k is negative.
+   */
+  public int[] getTopRidersInRace(int raceId, ClassificationType classification, int k)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getTopRidersInRace(raceId, classification, k);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public LocalTime[] getGeneralClassificationTimesInRace(int raceId)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getGeneralClassificationTimesInRace(raceId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getGeneralClassificationTimesInRaceNanos(int)} while holding the
+   * race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return A list of riders' total adjusted elapsed times in nanoseconds, sorted by their
+   *         GC rank. An empty list if there is no result for any stage in the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   */
+  public long[] getGeneralClassificationTimesInRaceNanos(int raceId)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getGeneralClassificationTimesInRaceNanos(raceId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getGeneralClassificationTimesInRaceNanos(int, long[], int)} while
+   * holding the race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write the total adjusted elapsed times into, in GC order.
+   * @param offset The position in the buffer to write the first time to.
+   * @return The number of times written, i.e. the number of riders in the GC.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the buffer has no room for the times at the offset.
+   */
+  public int getGeneralClassificationTimesInRaceNanos(int raceId, long[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getGeneralClassificationTimesInRaceNanos(raceId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public int[] getRidersPointsInRace(int raceId) throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersPointsInRace(raceId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersPointsInRace(int, int[], int)} while holding the race's read
+   * lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersPointsInRace(int raceId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersPointsInRace(raceId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersPointsInRace(int, IntBuffer)} while holding the race's read
+   * lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersPointsInRace(int raceId, IntBuffer buffer) throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersPointsInRace(raceId, buffer);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public int[] getRidersMountainPointsInRace(int raceId) throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersMountainPointsInRace(raceId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersMountainPointsInRace(int, int[], int)} while holding the
+   * race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersMountainPointsInRace(int raceId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersMountainPointsInRace(raceId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersMountainPointsInRace(int, IntBuffer)} while holding the
+   * race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersMountainPointsInRace(int raceId, IntBuffer buffer)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersMountainPointsInRace(raceId, buffer);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public int[] getRidersGeneralClassificationRank(int raceId) throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersGeneralClassificationRank(raceId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersGeneralClassificationRank(int, int[], int)} while holding
+   * the race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersGeneralClassificationRank(int raceId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersGeneralClassificationRank(raceId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersGeneralClassificationRank(int, IntBuffer)} while holding the
+   * race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersGeneralClassificationRank(int raceId, IntBuffer buffer)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersGeneralClassificationRank(raceId, buffer);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public int[] getRidersPointClassificationRank(int raceId) throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersPointClassificationRank(raceId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersPointClassificationRank(int, int[], int)} while holding the
+   * race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersPointClassificationRank(int raceId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersPointClassificationRank(raceId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersPointClassificationRank(int, IntBuffer)} while holding the
+   * race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersPointClassificationRank(int raceId, IntBuffer buffer)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersPointClassificationRank(raceId, buffer);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  @Override
+  public int[] getRidersMountainPointClassificationRank(int raceId)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersMountainPointClassificationRank(raceId);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersMountainPointClassificationRank(int, int[], int)} while
+   * holding the race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersMountainPointClassificationRank(int raceId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersMountainPointClassificationRank(raceId, buffer, offset);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+
+  /**
+   * Runs {@link CyclingPortal#getRidersMountainPointClassificationRank(int, IntBuffer)} while
+   * holding the race's read lock.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersMountainPointClassificationRank(int raceId, IntBuffer buffer)
+      throws IDNotRecognisedException {
+    Lock raceLock = lockRace(raceId, false);
+    try {
+      return portal.getRidersMountainPointClassificationRank(raceId, buffer);
+    } finally {
+      unlock(raceLock);
+    }
+  }
+}
@@ -4,12 +4,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -23,62 +28,37 @@ import java.util.List;
  */
 public class CyclingPortal implements CyclingPortalInterface {
 
-  //Array of segment points to be awarded depending on position (and type)
-  private static final Integer[] SPRINT_SEGMENT_POINTS = 
-    {20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1};
-  private static final Integer[] HC_SEGMENT_POINTS = 
-    {20, 15, 12, 10, 8, 6, 4, 2};
-  private static final Integer[] C1_SEGMENT_POINTS = 
-    {10, 8, 6, 4, 2, 1};
-  private static final Integer[] C2_SEGMENT_POINTS = 
-    {5, 3, 2, 1};
-  private static final Integer[] C3_SEGMENT_POINTS = 
-    {2, 1};
-  private static final Integer[] C4_SEGMENT_POINTS =
-    {1};
+  private static final long serialVersionUID = 4593872007708422541L;
 
-  //Array of stage points to be awarded depending on position (and type)
+  private EntityRegistry<Rider> riderRegistry = new EntityRegistry<Rider>(); // Riders by ID
 
-  private static final Integer[] FLAT_STAGE_POINTS = 
-    {50, 30, 20, 18, 16, 14, 12, 10, 8, 7, 6, 5, 4, 3, 2};
-  private static final Integer[] MM_STAGE_POINTS = 
-    {30, 25, 22, 19, 17, 15, 13, 11, 9, 7, 6, 5, 4, 3, 2};
-  private static final Integer[] HM_STAGE_POINTS = 
-    {20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5,  4, 3, 2, 1};
-  private static final Integer[] TT_STAGE_POINTS = 
-    {20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1};
+  private EntityRegistry<Team> teamRegistry = new EntityRegistry<Team>(); // Teams by ID
 
-  private LinkedList<Rider> riderList = new LinkedList<Rider>(); // List of riders
+  private EntityRegistry<Segment> segmentRegistry 
+      = new EntityRegistry<Segment>(); // Segments by ID
 
-  private LinkedList<Team> teamList = new LinkedList<Team>(); // List of teams
+  private EntityRegistry<Stage> stageRegistry = new EntityRegistry<Stage>(); // Stages by ID
 
-  private LinkedList<Segment> segmentList = new LinkedList<Segment>();  // List of segments
+  private EntityRegistry<Race> raceRegistry = new EntityRegistry<Race>(); // Races by ID
 
-  private LinkedList<Stage> stageList = new LinkedList<Stage>(); // List of stages
+  private HashMap<String, Race> raceNames = new HashMap<String, Race>(); // Races by name
 
-  private LinkedList<Race> raceList = new LinkedList<Race>(); // List of races
+  private HashMap<String, Team> teamNames = new HashMap<String, Team>(); // Teams by name
 
-  private LinkedList<RiderStageResults> riderStageResultsList = 
-      new LinkedList<RiderStageResults>(); // List of rider stage results
+  private HashMap<String, Stage> stageNames = new HashMap<String, Stage>(); // Stages by name
 
 
   /**
-   * Given an ID to search for, and a list of objects (i.e. riders) searches through the list
-   * and either returns the object with that ID, or null if no such object exists.
+   * Given an ID to search for, and a registry of objects (i.e. riders) looks up the object
+   * with that ID, throwing an IDNotRecognisedException if no such object exists.
    *
    * @param id ID of object to find
-   * @param objectList List of objects to search through
-   * @return The object with that ID, or null if no such object exists
+   * @param objectRegistry Registry of objects to look in
+   * @return The object with that ID
    */
-  private <T extends IdHaver> T correspondingObjectFinder(int id, LinkedList<T> objectList, 
+  private <T extends IdHaver> T correspondingObjectFinder(int id, EntityRegistry<T> objectRegistry,
       String objectType)  throws IDNotRecognisedException {
-    T correspondingObject = null;
-    for (T object : objectList) {
-      if (id == object.getId()) {
-        correspondingObject = object;
-        break;
-      }
-    }
+    T correspondingObject = objectRegistry.get(id);
     if (correspondingObject == null) {
       throw new IDNotRecognisedException(objectType + " ID " + id
         + " not recognised in the system.");
@@ -100,6 +80,33 @@ public class CyclingPortal implements CyclingPortalInterface {
     }
   }
 
+  /**
+   * Will throw an IllegalArgumentException if the arrays passed to a bulk method don't all
+   * have one entry per object being created.
+   *
+   * @param count Number of objects being created.
+   * @param lengths Length of each of the other arrays.
+   */
+  private void bulkLengthChecker(int count, int... lengths) {
+    for (int length : lengths) {
+      if (length != count) {
+        throw new IllegalArgumentException("Bulk arguments must all have the same length.");
+      }
+    }
+  }
+
+  /**
+   * Will throw an IllegalArgumentException if the number of leading riders asked for is
+   * negative.
+   *
+   * @param k Number of leading riders asked for.
+   */
+  private void topCountChecker(int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("Number of riders asked for is negative.");
+    }
+  }
+
   /**
    * Will throw an InvalidStageStateException if the stage is waiting for results.
    *
@@ -119,22 +126,51 @@ public class CyclingPortal implements CyclingPortalInterface {
    */
   private void deleteAllRiderResults(Rider rider) {
     assert rider != null;
-    LinkedList<RiderStageResults> riderResultsList = 
-        new LinkedList<RiderStageResults>(rider.getRiderResultsList());
-    for (RiderStageResults riderStageResults : riderResultsList) {
-      deleteRiderResult(riderStageResults);
+    deleteRiderResults(new ArrayList<RiderStageResults>(rider.getRiderResultsList()));
+  }
+
+  /**
+   * Deletes several results at once. Each stage's results are removed together, so deleting
+   * a whole stage or team takes time in proportion to the number of results rather than its
+   * square.
+   *
+   * @param deletedResults the results to be deleted
+   */
+  private void deleteRiderResults(ArrayList<RiderStageResults> deletedResults) {
+    HashMap<Stage, ArrayList<RiderStageResults>> resultsByStage
+        = new HashMap<Stage, ArrayList<RiderStageResults>>();
+    for (RiderStageResults riderStageResults : deletedResults) {
+      resultsByStage.computeIfAbsent(riderStageResults.getStage(),
+          stage -> new ArrayList<RiderStageResults>()).add(riderStageResults);
+    }
+    for (ArrayList<RiderStageResults> stageResults : resultsByStage.values()) {
+      if (stageResults.size() == 1) {
+        stageResults.get(0).getStage().removeRiderResult(stageResults.get(0));
+      } else {
+        stageResults.get(0).getStage().removeRiderResults(stageResults);
+      }
+    }
+    for (RiderStageResults riderStageResults : deletedResults) {
+      Rider rider = riderStageResults.getRider();
+      synchronized (rider) {
+        rider.getRiderResultsList().remove(riderStageResults);
+      }
     }
   }
 
   /**
-   * Deletes a riderStageResults object, removes all references to it.
+   * Deletes a riderStageResults object, removes all references to it. The rider is shared
+   * between races, so they are only changed while holding their lock, letting
+   * ConcurrentCyclingPortal change different races at once.
    *
    * @param riderStageResults rider result object to be deleted.
    */
   private void deleteRiderResult(RiderStageResults riderStageResults) {
-    riderStageResults.getStage().getRiderResultsList().remove(riderStageResults);
-    riderStageResults.getRider().getRiderResultsList().remove(riderStageResults);
-    riderStageResultsList.remove(riderStageResults);
+    riderStageResults.getStage().removeRiderResult(riderStageResults);
+    Rider rider = riderStageResults.getRider();
+    synchronized (rider) {
+      rider.getRiderResultsList().remove(riderStageResults);
+    }
   }
 
   /**
@@ -143,11 +179,7 @@ public class CyclingPortal implements CyclingPortalInterface {
    * @param stage Stage for results to be deleted within.
    */
   private void deleteAllStageResults(Stage stage) {
-    LinkedList<RiderStageResults> riderResultsList 
-        = new LinkedList<RiderStageResults>(stage.getRiderResultsList());
-    for (RiderStageResults riderStageResults : riderResultsList) {
-      deleteRiderResult(riderStageResults);
-    }
+    deleteRiderResults(new ArrayList<RiderStageResults>(stage.getRiderResultsList()));
   }
 
   /**
@@ -157,8 +189,14 @@ public class CyclingPortal implements CyclingPortalInterface {
    */
   private void deleteTeam(Team team) {
     assert team != null;
-    teamList.remove(team.getId());
-    LinkedList<Rider> riders = new LinkedList<Rider>(team.getRiders());
+    teamRegistry.remove(team);
+    teamNames.remove(team.getTeamName());
+    ArrayList<Rider> riders = new ArrayList<Rider>(team.getRiders());
+    ArrayList<RiderStageResults> teamResults = new ArrayList<RiderStageResults>();
+    for (Rider rider : riders) {
+      teamResults.addAll(rider.getRiderResultsList());
+    }
+    deleteRiderResults(teamResults);
     for (Rider rider : riders) {
       deleteRider(rider, team);
     }
@@ -173,7 +211,7 @@ public class CyclingPortal implements CyclingPortalInterface {
    */
   private void deleteRider(Rider rider, Team team) {
     assert rider != null;
-    riderList.remove(rider);
+    riderRegistry.remove(rider);
     deleteAllRiderResults(rider);
     team.removeRider(rider);
   }
@@ -185,8 +223,9 @@ public class CyclingPortal implements CyclingPortalInterface {
    */
   private void deleteRace(Race race) {
     assert race != null;
-    raceList.remove(race);
-    LinkedList<Stage> raceStages = new LinkedList<Stage>(race.getStages());
+    raceRegistry.remove(race);
+    raceNames.remove(race.getName());
+    ArrayList<Stage> raceStages = new ArrayList<Stage>(race.getStages());
     for (Stage stage : raceStages) {
       deleteStage(stage, race);
     }
@@ -201,9 +240,10 @@ public class CyclingPortal implements CyclingPortalInterface {
    */
   private void deleteStage(Stage stage, Race race) {
     assert stage != null;
-    stageList.remove(stage);
+    stageRegistry.remove(stage);
+    stageNames.remove(stage.getStageName());
     race.removeStage(stage);
-    LinkedList<Segment> stageSegments = new LinkedList<Segment>(stage.getSegments());
+    ArrayList<Segment> stageSegments = new ArrayList<Segment>(stage.getSegments());
     for (Segment segment : stageSegments) {
       deleteSegment(segment, stage);
     }
@@ -218,329 +258,65 @@ public class CyclingPortal implements CyclingPortalInterface {
    * @param stage Stage the segment belongs to.
    */
   private void deleteSegment(Segment segment, Stage stage) {
-    segmentList.remove(segment);
+    segmentRegistry.remove(segment);
     stage.removeSegment(segment);
     segment = null;
   }
 
-  /**
-   * Sorts a list of riders results by their elapsed time attribute.
-   *
-   * @param competingRiders List of ridersResults in a stage.
-   */
-  private void sortRidersByElapsedTime(LinkedList<RiderStageResults> competingRiders) {
-    competingRiders.sort(Comparator.comparing((RiderStageResults rider) 
-        -> rider.getElapsedTimeForStage()));
-  }
-
-  /**
-   * Adjusts all riders times in a stage. If one finishes within one second of another,
-   * their time is bumped to the lowest of the two. This cascades all the way down.
-   *
-   * @param competingRiders List of rider results in the stage.
-   */
-  private void adjustRiderTimesInStage(LinkedList<RiderStageResults> competingRiders) {
-    sortRidersByElapsedTime(competingRiders);
-    competingRiders.get(0).setAdjustedTimeForStage(
-        competingRiders.get(0).getElapsedTimeForStage());
-
-    for (int i = 0; i < competingRiders.size() - 1; i++) {
-      if (competingRiders.get(i + 1).getElapsedTimeForStage() 
-          - competingRiders.get(i).getElapsedTimeForStage() < 1000_000_000L) {
-        competingRiders.get(i + 1).setAdjustedTimeForStage(
-            competingRiders.get(i).getAdjustedTimeForStage());
-      } else {
-        competingRiders.get(i + 1).setAdjustedTimeForStage(
-            competingRiders.get(i + 1).getElapsedTimeForStage());
-      }
-    }
-  }
-
-
-  /**
-   * This function appends the 0's to the pointsToBeAdded array, depending on the number of
-   * riders in a given stage/segment.
-   *
-   * @param numRiders number of riders in the stage/segment.
-   * @param rankPoints Array of points that index's match the position in a segment/race,
-      and the points match the points awarded to those positions.
-   * @return number of points to add.
-   */
-  private LinkedList<Integer> pointsToBeAddedFormatter(int numRiders, Integer[] rankPoints) {
-    int rankPointsSize = rankPoints.length;
-    LinkedList<Integer> pointsToBeAdded 
-        = new LinkedList<Integer>(Arrays.asList(rankPoints));
-    if (numRiders > rankPointsSize) {
-      int sizeDifference = numRiders - rankPointsSize;
-      for (int i = 0; i < sizeDifference; i++) {
-        pointsToBeAdded.add(0);
-      }
-    }
-    return pointsToBeAdded;
-  }
-
-  /**
-   * Awards each rider in a segment their segment points, given their position and the
-   * type of segment.
-   * Mountain or sprint segments are decided by the boolean variable isSprintSegment
-   *
-   * @param competingRiders List of riders who competed in the segment.
-   * @param segment The segment we want to award points within.
-   * @param stageSegments List of all segments in the stage the segment is in.
-   * @param segmentPointsToBeAdded List of segment points to be added,
-       the index corresponds to position
-   * @param isSprintSegment Do we want to award a sprint segment or a mountain segment?
-   */
-  private void awardSegmentPoints(LinkedList<RiderStageResults> competingRiders, Segment segment, 
-      LinkedList<Segment> stageSegments, LinkedList<Integer> segmentPointsToBeAdded, 
-      boolean isSprintSegment) {
-    int indexForSegment = stageSegments.indexOf(segment);
-
-    LinkedList<RiderStageResults> ridersInSegment 
-        = new LinkedList<RiderStageResults>(competingRiders);
-    ridersInSegment.sort(Comparator.comparing((RiderStageResults rider) 
-        -> rider.getSegmentTime(indexForSegment)));
-
-    for (RiderStageResults rider : ridersInSegment) {
-      int indexForPoints = ridersInSegment.indexOf(rider);
-      int points = segmentPointsToBeAdded.get(indexForPoints);
-      if (isSprintSegment) {
-        rider.addPoints(points);
-      } else {
-        rider.addMountainPoints(points);
-      }
-    }
-    
-  }
-
-  /**
-   * Awards all the riders in a given stage their (sprint) points. Points are awarded to their
-   * Corresponding riderStageResults object.
-   *
-   * @param stage The stage to award (sprint) points within.
-   */
-  private void awardPointsInStage(Stage stage) {
-    LinkedList<RiderStageResults> riderResultsList 
-        = new LinkedList<RiderStageResults>(stage.getRiderResultsList());
-
-    LinkedList<Integer> pointsToBeAdded = new LinkedList<Integer>();
-    sortRidersByElapsedTime(riderResultsList);
-
-    for (RiderStageResults riderStageResults : riderResultsList) {
-      riderStageResults.resetPoints();
-    }
-
-    int riderResultsListSize = riderResultsList.size();
-    StageType stageType = stage.getType();
-    switch (stageType) {
-      case FLAT: 
-        pointsToBeAdded = pointsToBeAddedFormatter(riderResultsListSize, FLAT_STAGE_POINTS);
-        break;
-      case MEDIUM_MOUNTAIN: 
-        pointsToBeAdded = pointsToBeAddedFormatter(riderResultsListSize, MM_STAGE_POINTS);
-        break;
-      case HIGH_MOUNTAIN: 
-        pointsToBeAdded = pointsToBeAddedFormatter(riderResultsListSize, HM_STAGE_POINTS);
-        break;
-      case TT: 
-        pointsToBeAdded = pointsToBeAddedFormatter(riderResultsListSize, TT_STAGE_POINTS);
-        break;
-      default: assert false;
-    }
-
-    for (RiderStageResults riderStageResults : riderResultsList) {
-      int indexForPoints = riderResultsList.indexOf(riderStageResults);
-      int points = pointsToBeAdded.get(indexForPoints);
-      riderStageResults.setPoints(points);
-    }
-    LinkedList<Segment> segments = new LinkedList<Segment>(stage.getSegments());
-    LinkedList<Integer> segmentPointsToBeAdded = new LinkedList<Integer>();
-    for (Segment segment : segments) {
-      if (segment.getSegmentType() == SegmentType.SPRINT) {
-        segmentPointsToBeAdded 
-            = pointsToBeAddedFormatter(riderResultsList.size(), SPRINT_SEGMENT_POINTS);
-        awardSegmentPoints(riderResultsList, segment, segments, segmentPointsToBeAdded, true);
-      }
-    }
-  }
-
-
-  /**
-   * Awards all the riders in a given stage their mountain points. Points are awarded to their
-   * Corresponding riderStageResults object.
-   *
-   * @param stage The stage to award mountain points within.
-   */
-  private void awardMountainPointsInStage(Stage stage) {
-    LinkedList<RiderStageResults> riderResultsList 
-        = new LinkedList<RiderStageResults>(stage.getRiderResultsList());
-    LinkedList<Integer> pointsToBeAdded = new LinkedList<Integer>();
-    sortRidersByElapsedTime(riderResultsList);
-
-    for (RiderStageResults riderStageResults : riderResultsList) {
-      riderStageResults.resetMountainPoints();
-    }
-
-    LinkedList<Segment> segments = new LinkedList<Segment>(stage.getSegments());
-
-    for (Segment segment : segments) {
-      SegmentType segmentType = segment.getSegmentType();
-      int riderResultsListSize = riderResultsList.size();
-      if (!(segmentType == SegmentType.SPRINT)) {
-        switch (segmentType) {
-          case C1: 
-            pointsToBeAdded = pointsToBeAddedFormatter(riderResultsListSize, C1_SEGMENT_POINTS);
-            break;
-          case C2: 
-            pointsToBeAdded = pointsToBeAddedFormatter(riderResultsListSize, C2_SEGMENT_POINTS);
-            break;
-          case C3: 
-            pointsToBeAdded = pointsToBeAddedFormatter(riderResultsListSize, C3_SEGMENT_POINTS);
-            break;
-          case C4: 
-            pointsToBeAdded = pointsToBeAddedFormatter(riderResultsListSize, C4_SEGMENT_POINTS);
-            break;
-          case HC: 
-            pointsToBeAdded = pointsToBeAddedFormatter(riderResultsListSize, HC_SEGMENT_POINTS);
-            break;
-          default: assert false;
-        }
-        awardSegmentPoints(riderResultsList, segment, segments, pointsToBeAdded, false);
-      }
-    }
-  }
-
-  /**
-   * Awards every rider in a given race their total Points classification points.
-   *
-   * @param race The specified race to sum total (sprint) points within
-   * @return Returns the list of riders in the given race
-       now with their awarded total (sprint) points.
-   */
-  private LinkedList<Rider> totalRidersPoints(Race race) {
-    LinkedList<Rider> riders = new LinkedList<Rider>();
-    for (Rider rider : riderList) {
-      rider.resetTotalElapsedTime();
-      rider.resetTotalPoints();
-    }
-
-    for (Stage stage : race.getStages()) {
-      awardPointsInStage(stage);
-      for (RiderStageResults riderStageResults : stage.getRiderResultsList()) {
-        Rider rider = riderStageResults.getRider();
-        rider.addTotalElapsedTime(riderStageResults.getElapsedTimeForStage());
-        rider.addTotalPoints(riderStageResults.getRiderPoints());
-        if (!riders.contains(rider)) {
-          riders.add(rider);
-        }
-      }
-    }
-    return riders;
+  @Override
+  public int[] getRaceIds() {
+    return raceRegistry.getIds();
   }
 
-  /**
-   * Awards every rider in a given race their total Mountain classification points.
-   *
-   * @param race The specified race to sum total mountain points within
-   * @return Returns the list of riders in the given race, 
-       now with their total mountain points awarded
-   */
-  private LinkedList<Rider> totalRidersMountainPoints(Race race) {
-    LinkedList<Rider> riders = new LinkedList<Rider>();
-    for (Rider rider : riderList) {
-      rider.resetTotalElapsedTime();
-      rider.resetTotalMountainPoints();
-    }
-    for (Stage stage : race.getStages()) {
-      awardMountainPointsInStage(stage);
-      for (RiderStageResults riderStageResults : stage.getRiderResultsList()) {
-        Rider rider = riderStageResults.getRider();
-        rider.addTotalElapsedTime(riderStageResults.getElapsedTimeForStage());
-        rider.addTotalMountainPoints(riderStageResults.getRiderMountainPoints());
-        if (!riders.contains(rider)) {
-          riders.add(rider);
-        }
-      }
+  @Override
+  public int createRace(String name, String description) 
+      throws IllegalNameException, InvalidNameException {
+    validNameChecker(name, "Race");
+    if (raceNames.containsKey(name)) {
+      throw new IllegalNameException("Race name already exists in the platform.");
     }
-    return riders;
-  }
-
-
-  /**
-   * Sorts riders by their total elapsed time.
-   *
-   * @param riders List of riders to be sorted.
-   */
-  private void sortByTotalElapsedTime(LinkedList<Rider> riders) {
-    riders.sort(Comparator.comparing((Rider rider) -> rider.getTotalElapsedTime()));
-  }
-
-  /**
-   * Sorts riders by their total adjusted time.
-   *
-   * @param riders List of riders to be sorted.
-   */
-  private void sortByTotalAdjustedTime(LinkedList<Rider> riders) {
-    riders.sort(Comparator.comparing((Rider rider) -> rider.getTotalAdjustedTime()));
+    Race newRace = new Race(name, description);
+    raceRegistry.add(newRace);
+    raceNames.put(name, newRace);
+    return newRace.getId();
   }
 
   /**
-   * Adjusts all rider times within a specified race, and returns them.
+   * Creates several races at once. Every race is checked before any is created, so either all
+   * of them are created, with consecutive IDs, or none are.
    *
-   * @param race The specified race.
-   * @return A list of riders who competed in the race, sorted by
-     their total adjusted time.
+   * @param names Race names, each must be unique in the system and within the array.
+   * @param descriptions Race descriptions, one per name.
+   * @return The IDs of the created races, in the same order as the names.
+   * @throws IllegalNameException If a name already exists in the platform or is repeated.
+   * @throws InvalidNameException If a name is null, empty, has more than 30 characters, or has
+   *                              white spaces.
    */
-  private LinkedList<Rider> ridersTotalAdjustedTime(Race race) {
-
-    LinkedList<Rider> riders = new LinkedList<Rider>();
-    for (Rider rider : riderList) {
-      rider.resetTotalAdjustedTime();
-    }
-    for (Stage stage : race.getStages()) {
-      LinkedList<RiderStageResults> riderResultsList = stage.getRiderResultsList();
-      if (riderResultsList.size() == 0) {
-        break;
-      }
-      adjustRiderTimesInStage(riderResultsList);
-      for (RiderStageResults riderStageResults : riderResultsList) {
-        Rider rider = riderStageResults.getRider();
-        rider.addTotalAdjustedTime(riderStageResults.getAdjustedTimeForStage());
-        if (!riders.contains(rider)) {
-          riders.add(rider);
-        }
-      }
-    }
-    sortByTotalAdjustedTime(riders);
-    return riders;
-  }
-
-  @Override
-  public int[] getRaceIds() {
-    List<Integer> raceIds = new LinkedList<Integer>();
-    for (Race race : raceList) {
-      raceIds.add(race.getId());
-    }
-    return raceIds.stream().mapToInt(i -> i).toArray();
-  }
-
-  @Override
-  public int createRace(String name, String description) 
+  public int[] createRaces(String[] names, String[] descriptions)
       throws IllegalNameException, InvalidNameException {
-    validNameChecker(name, "Race");
-    for (Race race : raceList) {
-      if (name == race.getName()) {
+    bulkLengthChecker(names.length, descriptions.length);
+    HashSet<String> newNames = new HashSet<String>();
+    for (String name : names) {
+      validNameChecker(name, "Race");
+      if (raceNames.containsKey(name) || !newNames.add(name)) {
         throw new IllegalNameException("Race name already exists in the platform.");
       }
     }
-    Race newRace = new Race(name, description);
-    raceList.add(newRace);
-    return newRace.getId();
+
+    int[] raceIds = new int[names.length];
+    raceRegistry.reserve(names.length);
+    for (int i = 0; i < names.length; i++) {
+      Race newRace = new Race(names[i], descriptions[i]);
+      raceRegistry.add(newRace);
+      raceNames.put(names[i], newRace);
+      raceIds[i] = newRace.getId();
+    }
+    return raceIds;
   }
 
   @Override
   public String viewRaceDetails(int raceId) throws IDNotRecognisedException {
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
     String details;
     String name = race.getName();
     String description = race.getDescription();
@@ -554,13 +330,13 @@ public class CyclingPortal implements CyclingPortalInterface {
 
   @Override
   public void removeRaceById(int raceId) throws IDNotRecognisedException {
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
     deleteRace(race);
   }
 
   @Override
   public int getNumberOfStages(int raceId) throws IDNotRecognisedException {
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
     return race.getStages().size();
   }
 
@@ -572,22 +348,69 @@ public class CyclingPortal implements CyclingPortalInterface {
     if (length < 5D) {
       throw new InvalidLengthException("Length is less than 5km");
     }
-    for (Stage stage : stageList) {
-      if (stageName == stage.getStageName()) {
-        throw new IllegalNameException("Stage name already exists in the platform.");
-      }
+    if (stageNames.containsKey(stageName)) {
+      throw new IllegalNameException("Stage name already exists in the platform.");
     }
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
     Stage newStage = new Stage(raceId, stageName, description, length, startTime, type);
     race.addStage(newStage);
-    stageList.add(newStage);
+    stageRegistry.add(newStage);
+    stageNames.put(stageName, newStage);
     return newStage.getId();
   }
 
+  /**
+   * Adds several stages to a race at once. Every stage is checked before any is added, so
+   * either all of them are added, with consecutive IDs, or none are.
+   *
+   * @param raceId The ID of the race the stages are added to.
+   * @param stageNames Stage names, each must be unique in the system and within the array.
+   * @param descriptions Stage descriptions, one per name.
+   * @param lengths Stage lengths in kilometres, one per name.
+   * @param startTimes Date and time each stage starts, one per name.
+   * @param types The type of each stage, one per name.
+   * @return The IDs of the created stages, in the same order as the names.
+   * @throws IDNotRecognisedException If the ID does not match to any race in the system.
+   * @throws IllegalNameException If a name already exists in the platform or is repeated.
+   * @throws InvalidNameException If a name is null, empty, has more than 30 characters, or has
+   *                              white spaces.
+   * @throws InvalidLengthException If a length is less than 5km.
+   */
+  public int[] addStagesToRace(int raceId, String[] stageNames, String[] descriptions,
+      double[] lengths, LocalDateTime[] startTimes, StageType[] types)
+      throws IDNotRecognisedException, IllegalNameException, InvalidNameException,
+      InvalidLengthException {
+    bulkLengthChecker(stageNames.length, descriptions.length, lengths.length,
+        startTimes.length, types.length);
+    HashSet<String> newNames = new HashSet<String>();
+    for (int i = 0; i < stageNames.length; i++) {
+      validNameChecker(stageNames[i], "Stage");
+      if (lengths[i] < 5D) {
+        throw new InvalidLengthException("Length is less than 5km");
+      }
+      if (this.stageNames.containsKey(stageNames[i]) || !newNames.add(stageNames[i])) {
+        throw new IllegalNameException("Stage name already exists in the platform.");
+      }
+    }
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+
+    int[] stageIds = new int[stageNames.length];
+    stageRegistry.reserve(stageNames.length);
+    for (int i = 0; i < stageNames.length; i++) {
+      Stage newStage = new Stage(raceId, stageNames[i], descriptions[i], lengths[i],
+          startTimes[i], types[i]);
+      race.addStage(newStage);
+      stageRegistry.add(newStage);
+      this.stageNames.put(stageNames[i], newStage);
+      stageIds[i] = newStage.getId();
+    }
+    return stageIds;
+  }
+
   @Override
   public int[] getRaceStages(int raceId) throws IDNotRecognisedException {
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
-    List<Integer> stageIds = new LinkedList<Integer>();
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    List<Integer> stageIds = new ArrayList<Integer>();
     for (Stage stage : race.getStages()) {
       stageIds.add(stage.getId());
     }
@@ -596,14 +419,26 @@ public class CyclingPortal implements CyclingPortalInterface {
 
   @Override
   public double getStageLength(int stageId) throws IDNotRecognisedException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
     return stage.getLength();
   }
 
+  /**
+   * Gets the ID of the race a stage belongs to.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return The ID of the race the stage is part of.
+   * @throws IDNotRecognisedException If the ID does not match to any stage in the system.
+   */
+  public int getStageRaceId(int stageId) throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    return stage.getRaceId();
+  }
+
   @Override
   public void removeStageById(int stageId) throws IDNotRecognisedException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
-    Race raceContainingStage = correspondingObjectFinder(stage.getRaceId(), raceList, "Race");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    Race raceContainingStage = correspondingObjectFinder(stage.getRaceId(), raceRegistry, "Race");
     deleteStage(stage, raceContainingStage);
   }
 
@@ -611,7 +446,7 @@ public class CyclingPortal implements CyclingPortalInterface {
   public int addCategorizedClimbToStage(int stageId, Double location, SegmentType type, 
       Double averageGradient, Double length) throws IDNotRecognisedException, 
       InvalidLocationException, InvalidStageStateException, InvalidStageTypeException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
     validStageStateChecker(stage.getStageState());
     if (stage.getType() == StageType.TT) {
       throw new InvalidStageTypeException("Time-trial stages cannot contain any segment.");
@@ -622,15 +457,48 @@ public class CyclingPortal implements CyclingPortalInterface {
 
     Segment newClimb = new ClimbSegment(stageId, type, location, averageGradient, length);
     stage.addSegment(newClimb);
-    segmentList.add(newClimb);
+    segmentRegistry.add(newClimb);
     return newClimb.getId();
   }
 
+  /**
+   * Adds several climbs to a stage at once. Every climb is checked before any is added, so
+   * either all of them are added, with consecutive IDs, or none are.
+   *
+   * @param stageId The ID of the stage the climbs are added to.
+   * @param locations The kilometre location where each climb finishes within the stage.
+   * @param types The category of each climb.
+   * @param averageGradients The average gradient of each climb.
+   * @param lengths The length of each climb in kilometres.
+   * @return The IDs of the created segments, in the same order as the locations.
+   * @throws IDNotRecognisedException If the ID does not match to any stage in the system.
+   * @throws InvalidLocationException If a location is out of bounds of the stage length.
+   * @throws InvalidStageStateException If the stage is "waiting for results".
+   * @throws InvalidStageTypeException Time-trial stages cannot contain any segment.
+   */
+  public int[] addCategorizedClimbsToStage(int stageId, double[] locations, SegmentType[] types,
+      double[] averageGradients, double[] lengths) throws IDNotRecognisedException,
+      InvalidLocationException, InvalidStageStateException, InvalidStageTypeException {
+    bulkLengthChecker(locations.length, types.length, averageGradients.length, lengths.length);
+    Stage stage = segmentStageChecker(stageId, locations);
+
+    int[] segmentIds = new int[locations.length];
+    segmentRegistry.reserve(locations.length);
+    for (int i = 0; i < locations.length; i++) {
+      Segment newClimb = new ClimbSegment(stageId, types[i], locations[i], averageGradients[i],
+          lengths[i]);
+      stage.addSegment(newClimb);
+      segmentRegistry.add(newClimb);
+      segmentIds[i] = newClimb.getId();
+    }
+    return segmentIds;
+  }
+
   @Override
   public int addIntermediateSprintToStage(int stageId, double location) 
       throws IDNotRecognisedException, InvalidLocationException, 
       InvalidStageStateException, InvalidStageTypeException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
     validStageStateChecker(stage.getStageState());
     if (stage.getType() == StageType.TT) {
       throw new InvalidStageTypeException("Time-trial stages cannot contain any segment.");
@@ -641,16 +509,69 @@ public class CyclingPortal implements CyclingPortalInterface {
 
     Segment newSprint = new Segment(stageId, SegmentType.SPRINT, location);
     stage.addSegment(newSprint);
-    segmentList.add(newSprint);
+    segmentRegistry.add(newSprint);
     return newSprint.getId();
   }
 
+  /**
+   * Adds several intermediate sprints to a stage at once. Every sprint is checked before any
+   * is added, so either all of them are added, with consecutive IDs, or none are.
+   *
+   * @param stageId The ID of the stage the sprints are added to.
+   * @param locations The kilometre location where each sprint finishes within the stage.
+   * @return The IDs of the created segments, in the same order as the locations.
+   * @throws IDNotRecognisedException If the ID does not match to any stage in the system.
+   * @throws InvalidLocationException If a location is out of bounds of the stage length.
+   * @throws InvalidStageStateException If the stage is "waiting for results".
+   * @throws InvalidStageTypeException Time-trial stages cannot contain any segment.
+   */
+  public int[] addIntermediateSprintsToStage(int stageId, double[] locations)
+      throws IDNotRecognisedException, InvalidLocationException,
+      InvalidStageStateException, InvalidStageTypeException {
+    Stage stage = segmentStageChecker(stageId, locations);
+
+    int[] segmentIds = new int[locations.length];
+    segmentRegistry.reserve(locations.length);
+    for (int i = 0; i < locations.length; i++) {
+      Segment newSprint = new Segment(stageId, SegmentType.SPRINT, locations[i]);
+      stage.addSegment(newSprint);
+      segmentRegistry.add(newSprint);
+      segmentIds[i] = newSprint.getId();
+    }
+    return segmentIds;
+  }
+
+  /**
+   * Looks up the stage segments are being added to in bulk, and checks that the stage can
+   * take segments at every one of the given locations.
+   *
+   * @param stageId The ID of the stage the segments are added to.
+   * @param locations The location of each segment.
+   * @return The stage.
+   */
+  private Stage segmentStageChecker(int stageId, double[] locations)
+      throws IDNotRecognisedException, InvalidLocationException,
+      InvalidStageStateException, InvalidStageTypeException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    validStageStateChecker(stage.getStageState());
+    if (stage.getType() == StageType.TT) {
+      throw new InvalidStageTypeException("Time-trial stages cannot contain any segment.");
+    }
+    for (double location : locations) {
+      if (location > stage.getLength()) {
+        throw new InvalidLocationException(
+            "Segment location is out of bounds of the stage length.");
+      }
+    }
+    return stage;
+  }
+
   @Override
   public void removeSegment(int segmentId) throws IDNotRecognisedException, 
       InvalidStageStateException {
-    Segment segment = correspondingObjectFinder(segmentId, segmentList, "Segment");
+    Segment segment = correspondingObjectFinder(segmentId, segmentRegistry, "Segment");
     Stage stageContainingSegment = correspondingObjectFinder(segment.getStageId(),
-          stageList, "Stage");
+          stageRegistry, "Stage");
     validStageStateChecker(stageContainingSegment.getStageState());
     deleteSegment(segment, stageContainingSegment);
   }
@@ -658,15 +579,15 @@ public class CyclingPortal implements CyclingPortalInterface {
   @Override
   public void concludeStagePreparation(int stageId) throws 
       IDNotRecognisedException, InvalidStageStateException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
     validStageStateChecker(stage.getStageState());
     stage.concludeStageState();
   }
 
   @Override
   public int[] getStageSegments(int stageId) throws IDNotRecognisedException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
-    List<Integer> segmentIds = new LinkedList<Integer>();
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    List<Integer> segmentIds = new ArrayList<Integer>();
     for (Segment segment : stage.getSegments()) {
       segmentIds.add(segment.getId());
     }
@@ -677,36 +598,64 @@ public class CyclingPortal implements CyclingPortalInterface {
   public int createTeam(String name, String description) 
       throws IllegalNameException, InvalidNameException {
     validNameChecker(name, "Team");
-    for (Team team : teamList) { 
-      if (name == team.getTeamName()) {
-        throw new IllegalNameException("Team name already exists in the platform");
-      }
+    if (teamNames.containsKey(name)) {
+      throw new IllegalNameException("Team name already exists in the platform");
     }
     Team newTeam = new Team(name, description);
-    teamList.add(newTeam);
+    teamRegistry.add(newTeam);
+    teamNames.put(name, newTeam);
     return newTeam.getId();
   }
 
+  /**
+   * Creates several teams at once. Every team is checked before any is created, so either all
+   * of them are created, with consecutive IDs, or none are.
+   *
+   * @param names Team names, each must be unique in the system and within the array.
+   * @param descriptions Team descriptions, one per name.
+   * @return The IDs of the created teams, in the same order as the names.
+   * @throws IllegalNameException If a name already exists in the platform or is repeated.
+   * @throws InvalidNameException If a name is null, empty, has more than 30 characters, or has
+   *                              white spaces.
+   */
+  public int[] createTeams(String[] names, String[] descriptions)
+      throws IllegalNameException, InvalidNameException {
+    bulkLengthChecker(names.length, descriptions.length);
+    HashSet<String> newNames = new HashSet<String>();
+    for (String name : names) {
+      validNameChecker(name, "Team");
+      if (teamNames.containsKey(name) || !newNames.add(name)) {
+        throw new IllegalNameException("Team name already exists in the platform");
+      }
+    }
+
+    int[] teamIds = new int[names.length];
+    teamRegistry.reserve(names.length);
+    for (int i = 0; i < names.length; i++) {
+      Team newTeam = new Team(names[i], descriptions[i]);
+      teamRegistry.add(newTeam);
+      teamNames.put(names[i], newTeam);
+      teamIds[i] = newTeam.getId();
+    }
+    return teamIds;
+  }
+
   @Override
   public void removeTeam(int teamId) throws IDNotRecognisedException {
-    Team team = correspondingObjectFinder(teamId, teamList, "Team");
+    Team team = correspondingObjectFinder(teamId, teamRegistry, "Team");
     deleteTeam(team);
   }
 
   @Override
   public int[] getTeams() {
-    List<Integer> teamIds = new LinkedList<Integer>();
-    for (Team team : teamList) {
-      teamIds.add(team.getId());
-    }
-    return teamIds.stream().mapToInt(i -> i).toArray();
+    return teamRegistry.getIds();
   }
 
   @Override
   public int[] getTeamRiders(int teamId) throws IDNotRecognisedException {
-    List<Rider> ridersInTeam = new LinkedList<Rider>();
-    List<Integer> teamRidersIds = new LinkedList<Integer>();
-    Team team = correspondingObjectFinder(teamId, teamList, "Team");
+    List<Rider> ridersInTeam = new ArrayList<Rider>();
+    List<Integer> teamRidersIds = new ArrayList<Integer>();
+    Team team = correspondingObjectFinder(teamId, teamRegistry, "Team");
     ridersInTeam = team.getRiders();
     for (Rider rider : ridersInTeam) {
       teamRidersIds.add(rider.getId());
@@ -721,17 +670,53 @@ public class CyclingPortal implements CyclingPortalInterface {
       throw new IllegalArgumentException(
           "Name of rider is null or year of birth is less than 1900");
     }
-    Team team = correspondingObjectFinder(teamId, teamList, "Team");
+    Team team = correspondingObjectFinder(teamId, teamRegistry, "Team");
     Rider newRider = new Rider(yearOfBirth, name, teamId);
-    riderList.add(newRider);
+    riderRegistry.add(newRider);
     team.addRider(newRider);
     return newRider.getId();
   }
 
+  /**
+   * Creates several riders at once, possibly in different teams. Every rider is checked
+   * before any is created, so either all of them are created, with consecutive IDs, or none
+   * are.
+   *
+   * @param teamIds The ID of the team each rider belongs to.
+   * @param names The name of each rider.
+   * @param yearsOfBirth The year of birth of each rider.
+   * @return The IDs of the created riders, in the same order as the names.
+   * @throws IDNotRecognisedException If a team ID does not match any team in the system.
+   * @throws IllegalArgumentException If a name is null, a year of birth is less than 1900, or
+   *                                  the arrays have different lengths.
+   */
+  public int[] createRiders(int[] teamIds, String[] names, int[] yearsOfBirth)
+      throws IDNotRecognisedException, IllegalArgumentException {
+    bulkLengthChecker(teamIds.length, names.length, yearsOfBirth.length);
+    Team[] teams = new Team[teamIds.length];
+    for (int i = 0; i < teamIds.length; i++) {
+      if (yearsOfBirth[i] < 1900 || names[i] == null) {
+        throw new IllegalArgumentException(
+            "Name of rider is null or year of birth is less than 1900");
+      }
+      teams[i] = correspondingObjectFinder(teamIds[i], teamRegistry, "Team");
+    }
+
+    int[] riderIds = new int[names.length];
+    riderRegistry.reserve(names.length);
+    for (int i = 0; i < names.length; i++) {
+      Rider newRider = new Rider(yearsOfBirth[i], names[i], teamIds[i]);
+      riderRegistry.add(newRider);
+      teams[i].addRider(newRider);
+      riderIds[i] = newRider.getId();
+    }
+    return riderIds;
+  }
+
   @Override
   public void removeRider(int riderId) throws IDNotRecognisedException {
-    Rider rider = correspondingObjectFinder(riderId, riderList, "Rider");
-    Team teamContainingRider = correspondingObjectFinder(rider.getTeamId(), teamList, "Team");
+    Rider rider = correspondingObjectFinder(riderId, riderRegistry, "Rider");
+    Team teamContainingRider = correspondingObjectFinder(rider.getTeamId(), teamRegistry, "Team");
     deleteRider(rider, teamContainingRider);
   }
 
@@ -739,190 +724,494 @@ public class CyclingPortal implements CyclingPortalInterface {
   public void registerRiderResultsInStage(int stageId, int riderId, LocalTime... checkpoints)
       throws IDNotRecognisedException, DuplicatedResultException, InvalidCheckpointsException,
       InvalidStageStateException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+
+    if (!(stage.getStageState() == "waiting for results")) {
+      throw new InvalidStageStateException("Stage has not concluded preparation.");
+    }
+
+    Rider rider = validRiderResultChecker(stage, riderId, checkpoints);
+    addRiderResult(stage, rider, checkpoints);
+  }
+
+  /**
+   * Register the results of a batch of riders in a stage, e.g. a group of finishers sent
+   * together by the timing system. The stage is looked up and checked once for the whole
+   * batch, then each row is checked and stored in turn. Every row is checked in full before
+   * any of it is stored, including for a missing (null) row or checkpoint time, so a row that
+   * can't be registered doesn't stop the rest of the batch, its exception is returned instead.
+   *
+   * @param stageId The ID of the stage the results are being registered to.
+   * @param riderIds The ID of the rider on each row.
+   * @param checkpoints The checkpoint times on each row, in the same format as
+   *        {@link #registerRiderResultsInStage(int, int, LocalTime...)}.
+   * @return For each row, null if the results were registered, otherwise the
+   *         IDNotRecognisedException, DuplicatedResultException or
+   *         InvalidCheckpointsException explaining why they weren't. A missing row or
+   *         checkpoint time gives an InvalidCheckpointsException.
+   * @throws IDNotRecognisedException If the ID does not match to any stage in the
+   *                                  system. Nothing is registered.
+   * @throws InvalidStageStateException Thrown when the stage is not "waiting for
+   *                                    results". Nothing is registered.
+   */
+  public Exception[] registerRiderResultsInStage(int stageId, int[] riderIds,
+      LocalTime[][] checkpoints) throws IDNotRecognisedException, InvalidStageStateException {
+    if (riderIds.length != checkpoints.length) {
+      throw new IllegalArgumentException("Every rider ID needs exactly one row of checkpoints.");
+    }
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
 
     if (!(stage.getStageState() == "waiting for results")) {
       throw new InvalidStageStateException("Stage has not concluded preparation.");
     }
 
-    for (RiderStageResults riderStageResults : stage.getRiderResultsList()) {
-      if (riderStageResults.getRider().getId() == riderId) {
-        throw new DuplicatedResultException(
-          "Rider has a result for the stage. A rider can have only one result per stage.");
+    Exception[] errors = new Exception[riderIds.length];
+    stage.reserveRiderResults(riderIds.length);
+    for (int i = 0; i < riderIds.length; i++) {
+      try {
+        Rider rider = validRiderResultChecker(stage, riderIds[i], checkpoints[i]);
+        addRiderResult(stage, rider, checkpoints[i]);
+      } catch (IDNotRecognisedException | DuplicatedResultException
+          | InvalidCheckpointsException e) {
+        errors[i] = e;
       }
     }
+    return errors;
+  }
+
+  /**
+   * Checks that a rider's results can be registered in a stage, throwing a
+   * DuplicatedResultException if the rider already has a result in the stage, an
+   * InvalidCheckpointsException if the number of checkpoints doesn't match the segments or
+   * any of them is null, and an IDNotRecognisedException if the rider doesn't exist.
+   *
+   * @param stage Stage the results are for.
+   * @param riderId ID of the rider the results are for.
+   * @param checkpoints Checkpoint times of the rider in the stage.
+   * @return The rider the results are for.
+   */
+  private Rider validRiderResultChecker(Stage stage, int riderId, LocalTime[] checkpoints)
+      throws IDNotRecognisedException, DuplicatedResultException, InvalidCheckpointsException {
+    if (stage.getRiderResult(riderId) != null) {
+      throw new DuplicatedResultException(
+        "Rider has a result for the stage. A rider can have only one result per stage.");
+    }
 
-    if (!(checkpoints.length == stage.getSegments().size() + 2)) {
+    if (checkpoints == null || !(checkpoints.length == stage.getSegments().size() + 2)) {
       throw new InvalidCheckpointsException(
         "The number checkpoint times don't match the number of segments (+2)");
     }
+    for (LocalTime checkpoint : checkpoints) {
+      if (checkpoint == null) {
+        throw new InvalidCheckpointsException("A checkpoint time is missing (null).");
+      }
+    }
 
-    Rider rider = correspondingObjectFinder(riderId, riderList, "Rider");
-    RiderStageResults riderStageResults = new RiderStageResults(rider, stage, checkpoints);
-    stage.addRiderResultToStage(riderStageResults);
-    riderStageResultsList.add(riderStageResults);
-    rider.addStageResults(riderStageResults);
+    return correspondingObjectFinder(riderId, riderRegistry, "Rider");
   }
 
-
   /**
-   * Converts a time in nanoseconds into the h/m/s/nanoseconds LocalTime format.
+   * Stores a rider's results in a stage, and adds a reference to them from the rider. Like
+   * deleteRiderResult, the rider is only changed while holding their lock.
    *
-   * @param nanoseconds The time in nanoseconds to be converted.
+   * @param stage Stage the results are for.
+   * @param rider Rider the results are for.
+   * @param checkpoints Checkpoint times of the rider in the stage.
    */
-  private LocalTime nanoToLocalTime(Long nanoseconds) {
-    assert nanoseconds != null;
-    int second = (int) (nanoseconds / 1000_000_000); 
-    int minute = (int) (second / 60);
-    int hour = (int) (minute / 60);
-
-    nanoseconds %= 1000_000_000;
-    hour %= 60;
-    minute %= 60;
-    second %= 60;
-    LocalTime time = LocalTime.of(hour, minute, second, nanoseconds.intValue());
-    return time;
+  private void addRiderResult(Stage stage, Rider rider, LocalTime[] checkpoints) {
+    RiderStageResults riderStageResults = stage.addRiderResultToStage(rider, checkpoints);
+    synchronized (rider) {
+      rider.addStageResults(riderStageResults);
+    }
   }
 
+
   @Override
   public LocalTime[] getRiderResultsInStage(int stageId, int riderId) 
       throws IDNotRecognisedException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
-    Rider rider = correspondingObjectFinder(riderId, riderList, "Rider");
-    LinkedList<Long> times = new LinkedList<Long>();
-    LinkedList<LocalTime> results = new LinkedList<LocalTime>();
-
-    for (RiderStageResults riderStageResults : rider.getRiderResultsList()) {
-      if (riderStageResults.getStage() == stage) {
-        for (Long segmentTime : riderStageResults.getSegmentTimes()) {
-          times.add(segmentTime + riderStageResults.getStartTime());
-        }
-        times.add(riderStageResults.getElapsedTimeForStage());
-        break;
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    Rider rider = correspondingObjectFinder(riderId, riderRegistry, "Rider");
+    ArrayList<Long> times = new ArrayList<Long>();
+    ArrayList<LocalTime> results = new ArrayList<LocalTime>();
+
+    RiderStageResults riderStageResults = stage.getRiderResult(rider.getId());
+    if (riderStageResults != null) {
+      for (int i = 0; i < riderStageResults.getNumberOfSegmentTimes(); i++) {
+        times.add(riderStageResults.getSegmentTime(i) + riderStageResults.getStartTime());
       }
+      times.add(riderStageResults.getElapsedTimeForStage());
     }
     for (Long time : times) {
-      results.add(nanoToLocalTime(time));
+      results.add(StageResultStore.nanoToLocalTime(time));
     }
     return results.toArray(new LocalTime[times.size()]);
   }
 
+  /**
+   * Get the times of a rider in a stage in nanoseconds. Unlike getRiderResultsInStage, no
+   * LocalTime is created per value and times of 24 hours or more are kept as they are.
+   *
+   * @param stageId The ID of the stage the result refers to.
+   * @param riderId The ID of the rider.
+   * @return An array of the rider's time of day at each segment, in nanoseconds since
+   *         midnight, followed by their total elapsed time in nanoseconds. An empty array is
+   *         returned in the case in which there is no result registered for the rider in the
+   *         stage.
+   * @throws IDNotRecognisedException If the ID does not match to any rider or stage in the
+   *                                  system.
+   */
+  public long[] getRiderResultsInStageNanos(int stageId, int riderId)
+      throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    correspondingObjectFinder(riderId, riderRegistry, "Rider");
+    StageResultStore results = stage.getResultStore();
+    int slot = results.getSlot(riderId);
+    long[] times = new long[slot < 0 ? 0 : results.getSegmentCount() + 1];
+    writeRiderResults(results, slot, times, 0);
+    return times;
+  }
+
+  /**
+   * Get the times of a rider in a stage in nanoseconds, written into a buffer supplied by
+   * the caller rather than a new array.
+   *
+   * @param stageId The ID of the stage the result refers to.
+   * @param riderId The ID of the rider.
+   * @param buffer The array to write the times into, in the same order as
+   *               getRiderResultsInStageNanos.
+   * @param offset The position in the buffer to write the first time to.
+   * @return The number of times written, 0 if there is no result registered for the rider in
+   *         the stage.
+   * @throws IDNotRecognisedException If the ID does not match to any rider or stage in the
+   *                                  system.
+   * @throws IndexOutOfBoundsException If the buffer has no room for the times at the offset.
+   */
+  public int getRiderResultsInStageNanos(int stageId, int riderId, long[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    correspondingObjectFinder(riderId, riderRegistry, "Rider");
+    StageResultStore results = stage.getResultStore();
+    int slot = results.getSlot(riderId);
+    int count = slot < 0 ? 0 : results.getSegmentCount() + 1;
+    OutputBuffers.checkSpace(buffer.length, offset, count);
+    writeRiderResults(results, slot, buffer, offset);
+    return count;
+  }
+
+  /**
+   * Writes a rider's time of day at each segment followed by their elapsed time, all in
+   * nanoseconds, into an array.
+   *
+   * @param results Result store of the stage.
+   * @param slot Slot of the rider in the store, or -1 if they have no result.
+   * @param buffer Array to write the times into.
+   * @param offset Position in the array to write the first time to.
+   */
+  private void writeRiderResults(StageResultStore results, int slot, long[] buffer,
+      int offset) {
+    if (slot < 0) {
+      return;
+    }
+    int segmentCount = results.getSegmentCount();
+    for (int i = 0; i < segmentCount; i++) {
+      buffer[offset + i] = results.getSegmentTime(slot, i) + results.getStartTime(slot);
+    }
+    buffer[offset + segmentCount] = results.getElapsedTime(slot);
+  }
+
   @Override
   public LocalTime getRiderAdjustedElapsedTimeInStage(int stageId, int riderId) 
       throws IDNotRecognisedException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
 
-    Rider rider = correspondingObjectFinder(riderId, riderList, "Rider");
+    Rider rider = correspondingObjectFinder(riderId, riderRegistry, "Rider");
 
-    LinkedList<RiderStageResults> riderResultsList = stage.getRiderResultsList();
-    adjustRiderTimesInStage(riderResultsList);
     LocalTime adjustedTime = null;
 
-    for (RiderStageResults riderStageResults : riderResultsList) {
-      if (riderStageResults.getRider() == rider) {
-        adjustedTime = nanoToLocalTime(riderStageResults.getAdjustedTimeForStage());
-        break;
-      }
+    RiderStageResults riderStageResults = stage.getRiderResult(rider.getId());
+    if (riderStageResults != null) {
+      adjustedTime = StageResultStore.nanoToLocalTime(
+          riderStageResults.getAdjustedTimeForStage());
     }
     return adjustedTime;
   }
 
+  /**
+   * Get the adjusted elapsed time of a rider in a stage in nanoseconds.
+   *
+   * @param stageId The ID of the stage the result refers to.
+   * @param riderId The ID of the rider.
+   * @return The adjusted elapsed time for the rider in the stage in nanoseconds, or -1 if
+   *         there is no result registered for the rider in the stage.
+   * @throws IDNotRecognisedException If the ID does not match to any rider or stage in the
+   *                                  system.
+   */
+  public long getRiderAdjustedElapsedTimeInStageNanos(int stageId, int riderId)
+      throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    correspondingObjectFinder(riderId, riderRegistry, "Rider");
+
+    int slot = stage.getResultStore().getSlot(riderId);
+    if (slot < 0) {
+      return -1L;
+    }
+    return stage.getResultStore().getAdjustedTime(slot);
+  }
+
   @Override
   public void deleteRiderResultsInStage(int stageId, int riderId) throws IDNotRecognisedException {
 
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
-    Rider rider = correspondingObjectFinder(riderId, riderList, "Rider");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    Rider rider = correspondingObjectFinder(riderId, riderRegistry, "Rider");
 
-    LinkedList<RiderStageResults> riderResultsList 
-        = new LinkedList<RiderStageResults>(stage.getRiderResultsList());
-
-    for (RiderStageResults riderStageResults : riderResultsList) {
-      if (riderStageResults.getRider() == rider) {
-        deleteRiderResult(riderStageResults);
-        break;
-      }
+    RiderStageResults riderStageResults = stage.getRiderResult(rider.getId());
+    if (riderStageResults != null) {
+      deleteRiderResult(riderStageResults);
     }
   }
 
   @Override
   public int[] getRidersRankInStage(int stageId) throws IDNotRecognisedException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
 
-    LinkedList<RiderStageResults> riderResultsList = stage.getRiderResultsList();
-    int[] riderIds = new int[riderResultsList.size()];
-    sortRidersByElapsedTime(riderResultsList);
+    return stage.getRankings().getRiderIds().clone();
+  }
 
-    for (int i = 0; i < riderResultsList.size(); i++) {
-      riderIds[i] = riderResultsList.get(i).getRider().getId();
-    }
-    return riderIds;
+  /**
+   * Writes the result of {@link #getRidersRankInStage(int)}, the riders' IDs sorted by their
+   * elapsed time, into an array supplied by the caller rather than a new array.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersRankInStage(int stageId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    return OutputBuffers.write(stage.getRankings().getRiderIds(), buffer, offset);
+  }
+
+  /**
+   * Writes the result of {@link #getRidersRankInStage(int)}, the riders' IDs sorted by their
+   * elapsed time, into a buffer supplied by the caller at its current position, which is moved past
+   * the values written.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersRankInStage(int stageId, IntBuffer buffer) throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    return OutputBuffers.write(stage.getRankings().getRiderIds(), buffer);
   }
 
   @Override
   public LocalTime[] getRankedAdjustedElapsedTimesInStage(int stageId)
       throws IDNotRecognisedException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
 
-    LinkedList<RiderStageResults> riderResultsList = stage.getRiderResultsList();
-    LocalTime[] localTimes = new LocalTime[riderResultsList.size()];
-    adjustRiderTimesInStage(riderResultsList);
-    for (int i = 0; i < riderResultsList.size(); i++) {
-      localTimes[i] = nanoToLocalTime(riderResultsList.get(i).getAdjustedTimeForStage());
-    }
-    return localTimes;
+    return stage.getRankings().getAdjustedLocalTimes().clone();
+  }
+
+  /**
+   * Get a single rider's position in a stage and how far behind the stage winner they are,
+   * without ranking every rider in the stage.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param riderId The ID of the rider.
+   * @return The rider's rank (1 for the winner), adjusted elapsed time and time behind the
+   *         winner. Null if there is no result registered for the rider in the stage.
+   * @throws IDNotRecognisedException If the ID does not match to any rider or stage in the
+   *                                  system.
+   */
+  public RiderRank getRiderRankInStage(int stageId, int riderId)
+      throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    correspondingObjectFinder(riderId, riderRegistry, "Rider");
+    return stage.getRiderRank(riderId);
+  }
+
+  /**
+   * Get the groups riders finished a stage in, i.e. the runs of riders who each finished
+   * within one second of the rider ahead and so share an adjusted elapsed time. The groups
+   * are kept with the stage's rankings, so asking again costs nothing until a result changes.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return The stage's groups: where each starts in the order returned by
+   *         {@link #getRidersRankInStage(int)}, how many riders are in it, and how far it
+   *         finished behind the leading group. No groups if there is no result for the stage.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   */
+  public StageGroups getStageGroups(int stageId) throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+
+    return stage.getRankings().getGroups();
+  }
+
+  /**
+   * Get the riders in the leading positions of a stage. They are read off the front of the
+   * stage's finishing order, which is kept sorted as results come in, so the whole stage is
+   * never ranked.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param k The number of leading riders to get.
+   * @return The IDs of the first k riders sorted by their elapsed time, or of every rider in
+   *         the stage if there are fewer than k. An empty list if there is no result for the
+   *         stage.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws IllegalArgumentException If k is negative.
+   */
+  public int[] getTopRidersInStage(int stageId, int k) throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    topCountChecker(k);
+
+    return stage.getTopRiders(k);
+  }
+
+  /**
+   * Get the adjusted elapsed times of riders in a stage in nanoseconds.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return The ranked list of adjusted elapsed times sorted by their finish time, in
+   *         nanoseconds. An empty list if there is no result for the stage.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   */
+  public long[] getRankedAdjustedElapsedTimesInStageNanos(int stageId)
+      throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+
+    return stage.getRankings().getAdjustedTimes().clone();
+  }
+
+  /**
+   * Get the adjusted elapsed times of riders in a stage in nanoseconds, written into a buffer
+   * supplied by the caller rather than a new array.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The array to write the adjusted elapsed times into, sorted by finish time.
+   * @param offset The position in the buffer to write the first time to.
+   * @return The number of times written, i.e. the number of riders with results in the stage.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws IndexOutOfBoundsException If the buffer has no room for the times at the offset.
+   */
+  public int getRankedAdjustedElapsedTimesInStageNanos(int stageId, long[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+
+    return OutputBuffers.write(stage.getRankings().getAdjustedTimes(), buffer, offset);
   }
 
   @Override
   public int[] getRidersPointsInStage(int stageId) throws IDNotRecognisedException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
 
-    awardPointsInStage(stage);
-    LinkedList<RiderStageResults> riderResultsList = stage.getRiderResultsList();
+    return stage.getRankings().getPoints().clone();
+  }
 
-    int[] riderPoints = new int[riderResultsList.size()];
-    sortRidersByElapsedTime(riderResultsList);
+  /**
+   * Writes the result of {@link #getRidersPointsInStage(int)}, the points each rider received in
+   * the stage, sorted by their elapsed time, into an array supplied by the caller rather than a new
+   * array.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersPointsInStage(int stageId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    return OutputBuffers.write(stage.getRankings().getPoints(), buffer, offset);
+  }
 
-    for (int i = 0; i < riderResultsList.size(); i++) {
-      riderPoints[i] = riderResultsList.get(i).getRiderPoints();
-    }
-    return riderPoints;
+  /**
+   * Writes the result of {@link #getRidersPointsInStage(int)}, the points each rider received in
+   * the stage, sorted by their elapsed time, into a buffer supplied by the caller at its current
+   * position, which is moved past the values written.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersPointsInStage(int stageId, IntBuffer buffer) throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    return OutputBuffers.write(stage.getRankings().getPoints(), buffer);
   }
 
   @Override
   public int[] getRidersMountainPointsInStage(int stageId) throws IDNotRecognisedException {
-    Stage stage = correspondingObjectFinder(stageId, stageList, "Stage");
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
 
-    awardMountainPointsInStage(stage);
-    LinkedList<RiderStageResults> riderResultsList = stage.getRiderResultsList();
+    return stage.getRankings().getMountainPoints().clone();
+  }
 
-    int[] riderMountainPoints = new int[riderResultsList.size()];
-    sortRidersByElapsedTime(riderResultsList);
+  /**
+   * Writes the result of {@link #getRidersMountainPointsInStage(int)}, the mountain points each
+   * rider received in the stage, sorted by their elapsed time, into an array supplied by the caller
+   * rather than a new array.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersMountainPointsInStage(int stageId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    return OutputBuffers.write(stage.getRankings().getMountainPoints(), buffer, offset);
+  }
 
-    for (int i = 0; i < riderResultsList.size(); i++) {
-      riderMountainPoints[i] = riderResultsList.get(i).getRiderMountainPoints();
-    }
-    return riderMountainPoints;
+  /**
+   * Writes the result of {@link #getRidersMountainPointsInStage(int)}, the mountain points each
+   * rider received in the stage, sorted by their elapsed time, into a buffer supplied by the caller
+   * at its current position, which is moved past the values written.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersMountainPointsInStage(int stageId, IntBuffer buffer)
+      throws IDNotRecognisedException {
+    Stage stage = correspondingObjectFinder(stageId, stageRegistry, "Stage");
+    return OutputBuffers.write(stage.getRankings().getMountainPoints(), buffer);
   }
 
   @Override
   public void eraseCyclingPortal() {
     Rider.resetIdCounter();
-    riderList.clear();
+    riderRegistry.clear();
 
     Team.resetIdCounter();
-    teamList.clear();
+    teamRegistry.clear();
+    teamNames.clear();
 
 
     Race.resetIdCounter();
-    raceList.clear();
+    raceRegistry.clear();
+    raceNames.clear();
 
     Stage.resetIdCounter();
-    stageList.clear();
+    stageRegistry.clear();
+    stageNames.clear();
 
     Segment.resetIdCounter();
-    segmentList.clear();
-
-    riderStageResultsList.clear();
+    segmentRegistry.clear();
   }
 
   @Override
@@ -935,11 +1224,16 @@ public class CyclingPortal implements CyclingPortalInterface {
       file.delete();
     }
     try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-      oos.writeObject(riderList);
-      oos.writeObject(teamList);
-      oos.writeObject(raceList);
-      oos.writeObject(stageList);
-      oos.writeObject(segmentList);
+      oos.writeObject(new LinkedList<Rider>(riderRegistry.values()));
+      oos.writeObject(new LinkedList<Team>(teamRegistry.values()));
+      oos.writeObject(new LinkedList<Race>(raceRegistry.values()));
+      oos.writeObject(new LinkedList<Stage>(stageRegistry.values()));
+      oos.writeObject(new LinkedList<Segment>(segmentRegistry.values()));
+      // The results are kept by their stages, the list is only written to keep the format
+      LinkedList<RiderStageResults> riderStageResultsList = new LinkedList<RiderStageResults>();
+      for (Stage stage : stageRegistry) {
+        riderStageResultsList.addAll(stage.getRiderResultsList());
+      }
       oos.writeObject(riderStageResultsList);
       System.out.printf("Saved in %s%n", filename);
       oos.close();
@@ -948,6 +1242,20 @@ public class CyclingPortal implements CyclingPortalInterface {
     }
   }
 
+  /**
+   * Loads a portal saved by saveCyclingPortal, replacing everything in this one.
+   *
+   * <p>Files saved by the original version of the portal, before entities were kept in
+   * ID-indexed registries, can't be loaded: the riders, stages and results they hold were
+   * stored in a different shape and there is no migration from it. Such a file is rejected
+   * with an IOException saying so. The entity classes declare their serialVersionUIDs, so
+   * files saved since then keep loading as long as those classes stay compatible.
+   *
+   * @param filename Location of the file to be loaded.
+   * @throws IOException If there is a problem experienced when trying to load the file,
+   *                     including it having been saved by the original version of the portal.
+   * @throws ClassNotFoundException If required class files cannot be found when loading.
+   */
   @Override
     public void loadCyclingPortal(String filename) throws IOException, ClassNotFoundException {
     eraseCyclingPortal();
@@ -955,42 +1263,29 @@ public class CyclingPortal implements CyclingPortalInterface {
       filename += ".ser";
     }
     try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-      Object obj = ois.readObject();
-      if (obj instanceof LinkedList<?>) {
-        if (((LinkedList<?>) obj).get(0) instanceof Rider) {
-          riderList = (LinkedList<Rider>) obj;
-        }
-      }
-      obj = ois.readObject();
-      if (obj instanceof LinkedList<?>) {
-        if (((LinkedList<?>) obj).get(0) instanceof Team) {
-          teamList = (LinkedList<Team>) obj;
-        }
-      }
-      obj = ois.readObject();
-      if (obj instanceof LinkedList<?>) {
-        if (((LinkedList<?>) obj).get(0) instanceof Race) {
-          raceList = (LinkedList<Race>) obj;
-        }
-      }
-      obj = ois.readObject();
-      if (obj instanceof LinkedList<?>) {
-        if (((LinkedList<?>) obj).get(0) instanceof Stage) {
-          stageList = (LinkedList<Stage>) obj;
-        }
+      loadRegistry(ois.readObject(), riderRegistry, Rider.class);
+      loadRegistry(ois.readObject(), teamRegistry, Team.class);
+      loadRegistry(ois.readObject(), raceRegistry, Race.class);
+      loadRegistry(ois.readObject(), stageRegistry, Stage.class);
+      loadRegistry(ois.readObject(), segmentRegistry, Segment.class);
+      ois.readObject(); // The results, already loaded as part of their stages
+      Rider.resetIdCounter(riderRegistry.getHighestId());
+      Team.resetIdCounter(teamRegistry.getHighestId());
+      Race.resetIdCounter(raceRegistry.getHighestId());
+      Stage.resetIdCounter(stageRegistry.getHighestId());
+      Segment.resetIdCounter(segmentRegistry.getHighestId());
+      for (Race race : raceRegistry) {
+        raceNames.put(race.getName(), race);
       }
-      obj = ois.readObject();
-      if (obj instanceof LinkedList<?>) {
-        if (((LinkedList<?>) obj).get(0) instanceof Segment) {
-          segmentList = (LinkedList<Segment>) obj;
-        }
+      for (Team team : teamRegistry) {
+        teamNames.put(team.getTeamName(), team);
       }
-      obj = ois.readObject();
-      if (obj instanceof LinkedList<?>) {
-        if (((LinkedList<?>) obj).get(0) instanceof RiderStageResults) {
-          riderStageResultsList = (LinkedList<RiderStageResults>) obj;
-        }
+      for (Stage stage : stageRegistry) {
+        stageNames.put(stage.getStageName(), stage);
       }
+    } catch (InvalidClassException e) {
+      throw new IOException(
+        "The file was saved by the original version of the portal and can't be loaded");
     } catch (IOException e) {
       throw new IOException("Failed to load contents from file");
     } catch (ClassNotFoundException e) {
@@ -999,15 +1294,27 @@ public class CyclingPortal implements CyclingPortalInterface {
   }
 
 
-  @Override
-  public void removeRaceByName(String name) throws NameNotRecognisedException {
-    Race race = null;
-    for (Race raceElement : raceList) {
-      if (raceElement.getName().equals(name)) {
-        race = raceElement;
-        break;
+  /**
+   * Adds every object of the given type, from a list read from a save file, into a registry.
+   *
+   * @param obj Object read from the save file, expected to be a LinkedList.
+   * @param objectRegistry Registry to add the objects to.
+   * @param objectType Class of the objects stored in the registry.
+   */
+  private <T extends IdHaver> void loadRegistry(Object obj, EntityRegistry<T> objectRegistry,
+      Class<T> objectType) {
+    if (obj instanceof LinkedList<?>) {
+      for (Object element : (LinkedList<?>) obj) {
+        if (objectType.isInstance(element)) {
+          objectRegistry.add(objectType.cast(element));
+        }
       }
     }
+  }
+
+  @Override
+  public void removeRaceByName(String name) throws NameNotRecognisedException {
+    Race race = raceNames.get(name);
     if (race == null) {
       throw new NameNotRecognisedException(
         "The given Race name does not match to any race in the system");
@@ -1015,97 +1322,333 @@ public class CyclingPortal implements CyclingPortalInterface {
     deleteRace(race);
   }
 
+  /**
+   * Get the standings of a race in every classification at once: the general classification,
+   * the points classification and the mountain classification. Cheaper than asking for each
+   * classification separately when all of them are needed.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return The race's standings, which are not affected by later changes to the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   */
+  public RaceStandings getRaceStandings(int raceId) throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings();
+  }
+
+  /**
+   * Get the current rankings of each stage in a race, which the race's standings can be
+   * worked out from later with {@link RaceStandings#RaceStandings(ArrayList)}, see
+   * {@link RaceStandings#captureRankings(Race)}.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return The rankings of the race's stages in race order, which never change.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   */
+  public ArrayList<StageRankings> getRaceRankings(int raceId) throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return RaceStandings.captureRankings(race);
+  }
+
+  /**
+   * Get a single rider's position in the general classification of a race and how far
+   * behind the leader they are, without sorting every rider in the race.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param riderId The ID of the rider.
+   * @return The rider's GC rank (1 for the leader), total adjusted elapsed time and time
+   *         behind the leader. Null if there is no result for the rider in any stage of the
+   *         race.
+   * @throws IDNotRecognisedException If the ID does not match to any rider or race in the
+   *                                  system.
+   */
+  public RiderRank getRiderGCRank(int raceId, int riderId) throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    correspondingObjectFinder(riderId, riderRegistry, "Rider");
+    return race.getGeneralClassification().getRiderRank(riderId);
+  }
+
+  /**
+   * Get the riders in the leading positions of one of a race's classifications. Standings
+   * already worked out are used where they are up to date. Otherwise the leading riders are
+   * picked out of the race's running points totals, in which only the stages that have
+   * changed are looked at again, rather than adding up and sorting the whole race.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param classification The classification to rank the riders by.
+   * @param k The number of leading riders to get.
+   * @return The IDs of the first k riders in the classification, or of every rider in the
+   *         race if there are fewer than k. An empty list if there is no result for any
+   *         stage in the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IllegalArgumentException If k is negative.
+   */
+  public int[] getTopRidersInRace(int raceId, ClassificationType classification, int k)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    topCountChecker(k);
+
+    if (classification == ClassificationType.GENERAL) {
+      // The GC is kept up to date between queries, so it is never sorted from scratch
+      int[] riderIds = race.getGeneralClassification().getRiderIds();
+      return Arrays.copyOf(riderIds, Math.min(k, riderIds.length));
+    }
+    RaceStandings standings = race.getCurrentStandings();
+    if (standings != null) {
+      int[] riderIds = classification == ClassificationType.POINTS
+          ? standings.getPointsClassificationRank()
+          : standings.getMountainPointsClassificationRank();
+      return Arrays.copyOf(riderIds, Math.min(k, riderIds.length));
+    }
+    return race.getPoints().getTopRiders(classification == ClassificationType.MOUNTAIN, k);
+  }
+
   @Override
   public LocalTime[] getGeneralClassificationTimesInRace(int raceId) 
       throws IDNotRecognisedException {
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
-    LinkedList<Rider> riders = ridersTotalAdjustedTime(race);
-    LocalTime[] localTimes = new LocalTime[riders.size()];
-    for (int i = 0; i < riders.size(); i++) {
-      localTimes[i] = nanoToLocalTime(riders.get(i).getTotalAdjustedTime());
-    }
-    return localTimes;
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getGeneralClassification().getTimes().clone();
+  }
+
+  /**
+   * Get the general classification times of riders in a race in nanoseconds. No LocalTime is
+   * made along the way, so unlike getGeneralClassificationTimesInRace, totals of 24 hours or
+   * more are returned as they are rather than throwing a DateTimeException.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return A list of riders' total adjusted elapsed times in nanoseconds, sorted by their
+   *         GC rank. An empty list if there is no result for any stage in the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   */
+  public long[] getGeneralClassificationTimesInRaceNanos(int raceId)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getGeneralClassification().getTotalTimes().clone();
+  }
+
+  /**
+   * Get the general classification times of riders in a race in nanoseconds, written into a
+   * buffer supplied by the caller rather than a new array. Totals of 24 hours or more are
+   * written as they are.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write the total adjusted elapsed times into, in GC order.
+   * @param offset The position in the buffer to write the first time to.
+   * @return The number of times written, i.e. the number of riders in the GC.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the buffer has no room for the times at the offset.
+   */
+  public int getGeneralClassificationTimesInRaceNanos(int raceId, long[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return OutputBuffers.write(race.getGeneralClassification().getTotalTimes(), buffer, offset);
   }
 
   @Override
   public int[] getRidersPointsInRace(int raceId) throws IDNotRecognisedException {
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
-    LinkedList<Rider> riders = totalRidersPoints(race);
-    sortByTotalElapsedTime(riders);
-    int[] riderPoints = new int[riders.size()];
-    for (int i = 0; i < riders.size(); i++) {
-      riderPoints[i] = riders.get(i).getTotalPoints();
-    }
-    return riderPoints;
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getRidersPoints();
+  }
+
+  /**
+   * Writes the result of {@link #getRidersPointsInRace(int)}, the riders' total points, sorted by
+   * their total elapsed time, into an array supplied by the caller rather than a new array.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersPointsInRace(int raceId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getRidersPoints(buffer, offset);
+  }
+
+  /**
+   * Writes the result of {@link #getRidersPointsInRace(int)}, the riders' total points, sorted by
+   * their total elapsed time, into a buffer supplied by the caller at its current position, which
+   * is moved past the values written.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersPointsInRace(int raceId, IntBuffer buffer) throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getRidersPoints(buffer);
   }
 
   @Override
   public int[] getRidersMountainPointsInRace(int raceId) throws IDNotRecognisedException {
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
-    LinkedList<Rider> riders = totalRidersMountainPoints(race);
-    sortByTotalElapsedTime(riders);
-    int[] riderMountainPoints = new int[riders.size()];
-    for (int i = 0; i < riders.size(); i++) {
-      riderMountainPoints[i] = riders.get(i).getTotalMountainPoints();
-    }
-    return riderMountainPoints;
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getRidersMountainPoints();
   }
 
-  @Override
-  public int[] getRidersGeneralClassificationRank(int raceId) throws IDNotRecognisedException {
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
+  /**
+   * Writes the result of {@link #getRidersMountainPointsInRace(int)}, the riders' total mountain
+   * points, sorted by their total elapsed time, into an array supplied by the caller rather than a
+   * new array.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersMountainPointsInRace(int raceId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getRidersMountainPoints(buffer, offset);
+  }
 
-    LinkedList<Rider> riders = ridersTotalAdjustedTime(race);
+  /**
+   * Writes the result of {@link #getRidersMountainPointsInRace(int)}, the riders' total mountain
+   * points, sorted by their total elapsed time, into a buffer supplied by the caller at its current
+   * position, which is moved past the values written.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersMountainPointsInRace(int raceId, IntBuffer buffer)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getRidersMountainPoints(buffer);
+  }
 
-    int[] riderIds = new int[riders.size()];
+  @Override
+  public int[] getRidersGeneralClassificationRank(int raceId) throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getGeneralClassification().getRiderIds().clone();
+  }
 
-    for (int i = 0; i < riders.size(); i++) {
-      riderIds[i] = riders.get(i).getId();
-    }
-    return riderIds;
+  /**
+   * Writes the result of {@link #getRidersGeneralClassificationRank(int)}, the riders' IDs in GC
+   * order, into an array supplied by the caller rather than a new array.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersGeneralClassificationRank(int raceId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return OutputBuffers.write(race.getGeneralClassification().getRiderIds(), buffer, offset);
   }
 
   /**
-   * Sorts the list of riders by their total (sprint) points.
+   * Writes the result of {@link #getRidersGeneralClassificationRank(int)}, the riders' IDs in GC
+   * order, into a buffer supplied by the caller at its current position, which is moved past the
+   * values written.
    *
-   * @param riders List of riders to be sorted.
+   * @param raceId The ID of the race being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
    */
-  private void sortByTotalPoints(LinkedList<Rider> riders) {
-    riders.sort(Comparator.comparing((Rider rider) -> (rider.getTotalPoints() * -1)));
+  public int getRidersGeneralClassificationRank(int raceId, IntBuffer buffer)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return OutputBuffers.write(race.getGeneralClassification().getRiderIds(), buffer);
   }
 
   @Override
   public int[] getRidersPointClassificationRank(int raceId) throws IDNotRecognisedException {
 
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
-    LinkedList<Rider> riders = totalRidersPoints(race);
-    sortByTotalPoints(riders);
-    int[] riderPointsId = new int[riders.size()];
-    for (int i = 0; i < riders.size(); i++) {
-      riderPointsId[i] = riders.get(i).getId();
-    }
-    return riderPointsId;
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getPointsClassificationRank();
+  }
+
+  /**
+   * Writes the result of {@link #getRidersPointClassificationRank(int)}, the riders' IDs sorted by
+   * their total points, into an array supplied by the caller rather than a new array.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersPointClassificationRank(int raceId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getPointsClassificationRank(buffer, offset);
   }
 
   /**
-   * Sorts the list of riders by their total mountain points.
+   * Writes the result of {@link #getRidersPointClassificationRank(int)}, the riders' IDs sorted by
+   * their total points, into a buffer supplied by the caller at its current position, which is
+   * moved past the values written.
    *
-   * @param riders List of riders to be sorted.
+   * @param raceId The ID of the race being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
    */
-  private void sortByTotalMountainPoints(LinkedList<Rider> riders) {
-    riders.sort(Comparator.comparing((Rider rider) -> (rider.getTotalMountainPoints() * -1)));
+  public int getRidersPointClassificationRank(int raceId, IntBuffer buffer)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getPointsClassificationRank(buffer);
   }
 
   @Override
   public int[] getRidersMountainPointClassificationRank(int raceId) 
       throws IDNotRecognisedException {
-    Race race = correspondingObjectFinder(raceId, raceList, "Race");
-    LinkedList<Rider> riders = totalRidersMountainPoints(race);
-    sortByTotalMountainPoints(riders);
-    int[] riderMountainPointsId = new int[riders.size()];
-    for (int i = 0; i < riders.size(); i++) {
-      riderMountainPointsId[i] = riders.get(i).getId();
-    }
-    return riderMountainPointsId;
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getMountainPointsClassificationRank();
+  }
+
+  /**
+   * Writes the result of {@link #getRidersMountainPointClassificationRank(int)}, the riders' IDs
+   * sorted by their total mountain points, into an array supplied by the caller rather than a new
+   * array.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The array to write into.
+   * @param offset The position in the array to write the first value to.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public int getRidersMountainPointClassificationRank(int raceId, int[] buffer, int offset)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getMountainPointsClassificationRank(buffer, offset);
+  }
+
+  /**
+   * Writes the result of {@link #getRidersMountainPointClassificationRank(int)}, the riders' IDs
+   * sorted by their total mountain points, into a buffer supplied by the caller at its current
+   * position, which is moved past the values written.
+   *
+   * @param raceId The ID of the race being queried.
+   * @param buffer The buffer to write into.
+   * @return The number of values written.
+   * @throws IDNotRecognisedException If the ID does not match any race in the system.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are written,
+   *                                 in which case nothing is written.
+   */
+  public int getRidersMountainPointClassificationRank(int raceId, IntBuffer buffer)
+      throws IDNotRecognisedException {
+    Race race = correspondingObjectFinder(raceId, raceRegistry, "Race");
+    return race.getStandings().getMountainPointsClassificationRank(buffer);
   }
 }
@@ -0,0 +1,185 @@
+package cycling;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Stores objects that have an ID (i.e. riders) in a table indexed directly by that ID.
+ * IDs are handed out sequentially by each class, so the table stays dense and lookup,
+ * insertion and removal all take constant time.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class EntityRegistry<T extends IdHaver> implements Iterable<T>, Serializable {
+
+  private static final long serialVersionUID = 2796035185316837340L;
+
+  private ArrayList<T> table = new ArrayList<T>(); // Object with ID i is stored at index i
+
+  private transient int size = 0; // Number of objects in the registry, counted again on loading
+
+  /**
+   * Reads the registry's table and counts the objects in it, as the count isn't serialized.
+   *
+   * @param in the stream to read from
+   * @throws IOException If the stream can't be read.
+   * @throws ClassNotFoundException If the class of an object in the table can't be found.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    size = 0;
+    for (T object : table) {
+      if (object != null) {
+        size++;
+      }
+    }
+  }
+
+  /**
+   * Gets the object with the given ID.
+   *
+   * @param id ID of the object to find
+   * @return The object with that ID, or null if no such object exists
+   */
+  public T get(int id) {
+    if (id < 0 || id >= table.size()) {
+      return null;
+    }
+    return table.get(id);
+  }
+
+  /**
+   * Adds an object to the registry, in the slot matching its ID.
+   *
+   * @param object Object to be added.
+   */
+  public void add(T object) {
+    int id = object.getId();
+    assert id >= 0;
+    table.ensureCapacity(id + 1);
+    while (table.size() <= id) {
+      table.add(null);
+    }
+    if (table.set(id, object) == null) {
+      size++;
+    }
+  }
+
+  /**
+   * Makes room for a number of further objects, used before adding objects in bulk.
+   *
+   * @param count Number of objects about to be added.
+   */
+  public void reserve(int count) {
+    table.ensureCapacity(table.size() + count);
+  }
+
+  /**
+   * Removes an object from the registry. Nothing happens if the object is not stored.
+   *
+   * @param object Object to be removed.
+   * @return true if the object was in the registry.
+   */
+  public boolean remove(T object) {
+    int id = object.getId();
+    if (get(id) != object) {
+      return false;
+    }
+    table.set(id, null);
+    size--;
+    return true;
+  }
+
+  /**
+   * Gets the number of objects in the registry.
+   *
+   * @return number of objects
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the highest ID the registry has room for, used to restore ID counters after loading.
+   *
+   * @return highest ID that has been stored, or 0 if the registry has never held anything.
+   */
+  public int getHighestId() {
+    return Math.max(table.size() - 1, 0);
+  }
+
+  /**
+   * Gets the IDs of every object in the registry, in ascending order.
+   *
+   * @return array of IDs
+   */
+  public int[] getIds() {
+    int[] ids = new int[size];
+    int i = 0;
+    for (T object : this) {
+      ids[i++] = object.getId();
+    }
+    return ids;
+  }
+
+  /**
+   * Gets every object in the registry as a list, in ascending order of ID.
+   *
+   * @return list of objects
+   */
+  public ArrayList<T> values() {
+    ArrayList<T> values = new ArrayList<T>(size);
+    for (T object : this) {
+      values.add(object);
+    }
+    return values;
+  }
+
+  /**
+   * Removes every object from the registry.
+   */
+  public void clear() {
+    table.clear();
+    size = 0;
+  }
+
+  /**
+   * Iterates over the objects in the registry in ascending order of ID.
+   *
+   * @return iterator over the stored objects
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      private int next = advance(0);
+
+      private int advance(int from) {
+        while (from < table.size() && table.get(from) == null) {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next < table.size();
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        T object = table.get(next);
+        next = advance(next + 1);
+        return object;
+      }
+    };
+  }
+}
@@ -0,0 +1,467 @@
+package cycling;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The general classification (GC) of a race, i.e. every rider in the race sorted by the sum of
+ * their adjusted elapsed times. The totals are kept between queries and only the changes made
+ * since the last query are taken in. Each stage's change log is replayed where it covers
+ * them, so a new result only costs the riders whose adjusted times it changed; otherwise the
+ * stage's current results are compared with what was last taken in.
+ *
+ * <p>Riders on equal totals are ordered by where they first appear in the race, i.e. their
+ * finishing position in the first stage they have a result in. Each rider's first stage and
+ * their results in it are kept, and riders in the same first stage are compared by the
+ * stage's finishing order. Results coming and going elsewhere in that stage never swap two
+ * riders in it, so a rider is only put back in place when their own results change, or when
+ * the race's stages are added, removed or reordered.
+ *
+ * <p>The totals are kept in nanoseconds, and only turned into LocalTimes when getTimes is
+ * called, so the ranking works for races whose totals reach 24 hours or more.
+ *
+ * <p>Reading the GC brings the totals up to date, so the getters are synchronized to let
+ * several threads read it at once while the race's results aren't changing.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class GeneralClassification {
+
+  private final Race race;
+
+  private HashMap<Stage, AppliedStage> applied
+      = new HashMap<Stage, AppliedStage>(); // What each stage has added to the totals
+
+  private Standing[] standings = new Standing[0]; // Each rider's standing, indexed by rider ID
+
+  private RankTree<Standing> classification
+      = new RankTree<Standing>(this::compare); // Standings sorted by total adjusted time
+
+  private ArrayList<Standing> changed
+      = new ArrayList<Standing>(); // Standings whose totals changed in the current update
+
+  private HashMap<Stage, Integer> stageIndexes
+      = new HashMap<Stage, Integer>(); // Position of each stage within the race
+
+  private int[] riderIds = new int[0]; // Rider IDs in GC order
+  private long[] totalTimes = new long[0]; // Total adjusted times in GC order, in nanoseconds
+  private boolean arraysCurrent = true; // Whether the arrays above match the classification
+  private LocalTime[] times = null; // Total adjusted times in GC order, null until asked for
+
+  /**
+   * A single rider's running total within the race.
+   */
+  private static class Standing {
+    private final Rider rider;
+    private long totalAdjustedTime = 0; // Sum of the rider's adjusted times in the race
+    private int firstStage; // Position in the race of the first stage the rider is in
+    private RiderStageResults firstResults; // The rider's results in that stage
+    private RankTree.Node<Standing> node; // Node in the classification, null if not in it
+    private int numberOfStages = 0; // Number of stages the rider has results in
+    private boolean changed = false; // Whether the total changed in the current update
+
+    /**
+     * Constructor for the Standing class.
+     *
+     * @param rider the rider the standing is for
+     */
+    private Standing(Rider rider) {
+      this.rider = rider;
+    }
+  }
+
+  /**
+   * What one stage has added to the totals: the version of its results taken in and the
+   * adjusted time each rider had in it then.
+   */
+  private static class AppliedStage {
+    private int version; // Version of the stage's results taken in
+    private BitSet riders = new BitSet(); // Riders with results in the stage, by ID
+    private long[] times = new long[0]; // Their adjusted times, indexed by rider ID
+
+    /**
+     * Records a rider's adjusted time in the stage.
+     *
+     * @param riderId ID of the rider
+     * @param time the rider's adjusted time
+     */
+    private void setTime(int riderId, long time) {
+      if (riderId >= times.length) {
+        times = Arrays.copyOf(times, Math.max(riderId + 1, times.length * 2));
+      }
+      times[riderId] = time;
+    }
+  }
+
+  /**
+   * Constructor for the GeneralClassification class.
+   *
+   * @param race the race to classify
+   */
+  public GeneralClassification(Race race) {
+    this.race = race;
+  }
+
+  /**
+   * Gets the IDs of the riders in the race sorted by their total adjusted time.
+   *
+   * @return rider IDs in GC order, the array must not be modified
+   */
+  public synchronized int[] getRiderIds() {
+    update();
+    updateArrays();
+    return riderIds;
+  }
+
+  /**
+   * Gets the total adjusted time of every rider in the race, in GC order.
+   *
+   * @return total adjusted times, the array must not be modified
+   * @throws java.time.DateTimeException If a total is 24 hours or more.
+   */
+  public synchronized LocalTime[] getTimes() {
+    update();
+    updateArrays();
+    if (times == null) {
+      LocalTime[] localTimes = new LocalTime[totalTimes.length];
+      for (int i = 0; i < totalTimes.length; i++) {
+        localTimes[i] = StageResultStore.nanoToLocalTime(totalTimes[i]);
+      }
+      times = localTimes;
+    }
+    return times;
+  }
+
+  /**
+   * Gets the total adjusted time of every rider in the race in nanoseconds, in GC order.
+   * Never makes any LocalTimes, so totals of 24 hours or more are returned as they are.
+   *
+   * @return total adjusted times in nanoseconds, the array must not be modified
+   */
+  public synchronized long[] getTotalTimes() {
+    update();
+    updateArrays();
+    return totalTimes;
+  }
+
+  /**
+   * Gets a single rider's position in the GC and how far behind the leader they are.
+   *
+   * @param riderId ID of the rider
+   * @return the rider's rank, or null if the rider has no result in the race
+   */
+  public synchronized RiderRank getRiderRank(int riderId) {
+    update();
+    if (riderId < 0 || riderId >= standings.length || standings[riderId] == null) {
+      return null;
+    }
+    Standing standing = standings[riderId];
+    long leaderTime = classification.first().getValue().totalAdjustedTime;
+    return new RiderRank(riderId, classification.rank(standing.node) + 1,
+        standing.totalAdjustedTime, standing.totalAdjustedTime - leaderTime);
+  }
+
+  /**
+   * Picks the riders in the race with the highest of some other totals, e.g. points, without
+   * sorting every rider. Riders on equal totals are ordered by where they first appear in the
+   * race, the same as in the GC.
+   *
+   * @param totalsByRiderId each rider's total, indexed by rider ID
+   * @param k maximum number of riders to pick
+   * @return IDs of up to k riders, highest total first
+   */
+  public synchronized int[] getTopRiders(int[] totalsByRiderId, int k) {
+    update();
+    Standing[] inRace = new Standing[classification.size()];
+    int count = 0;
+    for (Standing standing : standings) {
+      if (standing != null) {
+        inRace[count++] = standing;
+      }
+    }
+    int[] top = IndexSort.top(count, k, (a, b) -> {
+      int byTotal = Integer.compare(totalsByRiderId[inRace[b].rider.getId()],
+          totalsByRiderId[inRace[a].rider.getId()]);
+      return byTotal != 0 ? byTotal : compareFirstAppearance(inRace[a], inRace[b]);
+    });
+    for (int i = 0; i < top.length; i++) {
+      top[i] = inRace[top[i]].rider.getId();
+    }
+    return top;
+  }
+
+  /**
+   * Brings the totals up to date with the race's stages. Only stages whose results have
+   * changed are compared with the rankings last included, and only riders whose totals or
+   * finishing positions changed are moved within the classification.
+   */
+  private void update() {
+    ArrayList<Stage> stages = race.getStages();
+    boolean reindex = stageIndexes.size() != stages.size();
+    for (int i = 0; i < stages.size() && !reindex; i++) {
+      Integer stageIndex = stageIndexes.get(stages.get(i));
+      reindex = stageIndex == null || stageIndex != i;
+    }
+    if (reindex) {
+      stageIndexes.clear();
+      for (int i = 0; i < stages.size(); i++) {
+        stageIndexes.put(stages.get(i), i);
+      }
+      // Where every rider first appears may have moved
+      for (Standing standing : standings) {
+        if (standing != null) {
+          markChanged(standing);
+        }
+      }
+    }
+
+    for (Stage stage : stages) {
+      AppliedStage stageApplied = applied.get(stage);
+      if (stageApplied == null) {
+        stageApplied = new AppliedStage();
+        applied.put(stage, stageApplied);
+        compareStage(stage, stageApplied);
+      } else if (stageApplied.version != stage.getVersion()) {
+        StageChangeLog changeLog = stage.getChangeLog();
+        if (changeLog != null && changeLog.covers(stageApplied.version)) {
+          replayStage(changeLog, stageApplied);
+        } else {
+          compareStage(stage, stageApplied);
+        }
+      }
+      stageApplied.version = stage.getVersion();
+      stage.discardChanges();
+    }
+    // Stages removed from the race no longer count
+    if (applied.size() > stages.size()) {
+      Iterator<Map.Entry<Stage, AppliedStage>> iterator = applied.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Stage, AppliedStage> entry = iterator.next();
+        if (!stageIndexes.containsKey(entry.getKey())) {
+          AppliedStage removed = entry.getValue();
+          for (int riderId = removed.riders.nextSetBit(0); riderId >= 0;
+              riderId = removed.riders.nextSetBit(riderId + 1)) {
+            Standing standing = standings[riderId];
+            standing.totalAdjustedTime -= removed.times[riderId];
+            standing.numberOfStages--;
+            markChanged(standing);
+          }
+          iterator.remove();
+        }
+      }
+    }
+
+    if (!changed.isEmpty()) {
+      reposition();
+    }
+  }
+
+  /**
+   * Takes in the changes made to a stage since it was last looked at by replaying its change
+   * log, marking every rider whose adjusted time in the stage changed.
+   *
+   * @param changeLog the stage's change log, covering the version last taken in
+   * @param stageApplied what the stage has added to the totals so far
+   */
+  private void replayStage(StageChangeLog changeLog, AppliedStage stageApplied) {
+    for (int entry = changeLog.firstAfter(stageApplied.version); entry < changeLog.size();
+        entry++) {
+      Rider rider = changeLog.getResults(entry).getRider();
+      int riderId = rider.getId();
+      Standing standing = standingOf(rider);
+      long timeChange = changeLog.getTimeChange(entry);
+      int stageChange = changeLog.getStageChange(entry);
+      if (stageChange > 0) {
+        stageApplied.riders.set(riderId);
+        stageApplied.setTime(riderId, timeChange);
+      } else {
+        stageApplied.times[riderId] += timeChange;
+        if (stageChange < 0) {
+          stageApplied.riders.clear(riderId);
+        }
+      }
+      standing.totalAdjustedTime += timeChange;
+      standing.numberOfStages += stageChange;
+      markChanged(standing);
+    }
+  }
+
+  /**
+   * Takes in a stage's current results by comparing every rider's adjusted time in it with
+   * the one last taken in, used when the stage's change log doesn't cover the changes. Every
+   * rider whose adjusted time changed, or who was added to or removed from the stage, is
+   * marked.
+   *
+   * @param stage the stage
+   * @param stageApplied what the stage has added to the totals so far
+   */
+  private void compareStage(Stage stage, AppliedStage stageApplied) {
+    BitSet previousRiders = stageApplied.riders;
+    BitSet currentRiders = new BitSet();
+    stage.getFinishingOrder(); // Makes sure the adjusted times have been worked out
+    StageResultStore results = stage.getResultStore();
+    ArrayList<RiderStageResults> riderResultsList = stage.getRiderResultsList();
+    for (int slot = 0; slot < results.size(); slot++) {
+      Rider rider = riderResultsList.get(slot).getRider();
+      int riderId = rider.getId();
+      long adjustedTime = results.getAdjustedTime(slot);
+      Standing standing = standingOf(rider);
+      currentRiders.set(riderId);
+      if (previousRiders.get(riderId)) {
+        previousRiders.clear(riderId);
+        long timeChange = adjustedTime - stageApplied.times[riderId];
+        if (timeChange != 0) {
+          standing.totalAdjustedTime += timeChange;
+          markChanged(standing);
+        }
+      } else {
+        standing.totalAdjustedTime += adjustedTime;
+        standing.numberOfStages++;
+        markChanged(standing);
+      }
+      stageApplied.setTime(riderId, adjustedTime);
+    }
+
+    // Riders whose results were removed from the stage
+    for (int riderId = previousRiders.nextSetBit(0); riderId >= 0;
+        riderId = previousRiders.nextSetBit(riderId + 1)) {
+      Standing standing = standings[riderId];
+      standing.totalAdjustedTime -= stageApplied.times[riderId];
+      standing.numberOfStages--;
+      markChanged(standing);
+    }
+    stageApplied.riders = currentRiders;
+  }
+
+  /**
+   * Gets a rider's standing, making one if the rider isn't in the race yet.
+   *
+   * @param rider the rider
+   * @return the rider's standing
+   */
+  private Standing standingOf(Rider rider) {
+    int riderId = rider.getId();
+    if (riderId >= standings.length) {
+      standings = Arrays.copyOf(standings, Math.max(riderId + 1, standings.length * 2));
+    }
+    if (standings[riderId] == null) {
+      standings[riderId] = new Standing(rider);
+    }
+    return standings[riderId];
+  }
+
+  /**
+   * Marks a standing as changed in the current update, so it is put back in place.
+   *
+   * @param standing the standing whose total or place may have changed
+   */
+  private void markChanged(Standing standing) {
+    if (!standing.changed) {
+      standing.changed = true;
+      changed.add(standing);
+    }
+  }
+
+  /**
+   * Takes the changed standings out of the classification and puts each one back in its
+   * place. Riders left with no results in the race are dropped.
+   */
+  private void reposition() {
+    for (Standing standing : changed) {
+      if (standing.node != null) {
+        classification.remove(standing.node);
+        standing.node = null;
+      }
+    }
+    for (Standing standing : changed) {
+      standing.changed = false;
+      if (standing.numberOfStages == 0) {
+        standings[standing.rider.getId()] = null;
+        continue;
+      }
+      findFirstResults(standing);
+      standing.node = classification.insert(standing);
+    }
+    changed.clear();
+    arraysCurrent = false;
+  }
+
+  /**
+   * Copies the classification into the arrays handed out by the getters, if it has changed
+   * since they were last filled.
+   */
+  private void updateArrays() {
+    if (arraysCurrent) {
+      return;
+    }
+    riderIds = new int[classification.size()];
+    totalTimes = new long[classification.size()];
+    int i = 0;
+    for (RankTree.Node<Standing> node = classification.first(); node != null;
+        node = classification.next(node)) {
+      riderIds[i] = node.getValue().rider.getId();
+      totalTimes[i] = node.getValue().totalAdjustedTime;
+      i++;
+    }
+    times = null;
+    arraysCurrent = true;
+  }
+
+  /**
+   * Compares two standings by total adjusted time, then by where the riders first appear
+   * in the race.
+   *
+   * @param a the first standing
+   * @param b the second standing
+   * @return negative if a is ahead of b, positive if b is ahead of a
+   */
+  private int compare(Standing a, Standing b) {
+    int byTime = Long.compare(a.totalAdjustedTime, b.totalAdjustedTime);
+    if (byTime != 0) {
+      return byTime;
+    }
+    return compareFirstAppearance(a, b);
+  }
+
+  /**
+   * Compares two standings by where the riders first appear in the race: the position of
+   * the first stage they have a result in, then their finishing order in it.
+   *
+   * @param a the first standing
+   * @param b the second standing
+   * @return negative if a appears first, positive if b appears first
+   */
+  private int compareFirstAppearance(Standing a, Standing b) {
+    if (a.firstStage != b.firstStage) {
+      return Integer.compare(a.firstStage, b.firstStage);
+    }
+    return a.firstResults.getStage().compareFinishingOrder(a.firstResults, b.firstResults);
+  }
+
+  /**
+   * Finds the first stage in the race a rider has a result in, and their results in it. The
+   * rider's results include other races, which may be changing them, so they are read holding
+   * the rider's lock.
+   *
+   * @param standing the rider's standing
+   */
+  private void findFirstResults(Standing standing) {
+    standing.firstStage = Integer.MAX_VALUE;
+    synchronized (standing.rider) {
+      for (RiderStageResults riderStageResults : standing.rider.getRiderResultsList()) {
+        Integer stageIndex = stageIndexes.get(riderStageResults.getStage());
+        if (stageIndex != null && stageIndex < standing.firstStage) {
+          standing.firstStage = stageIndex;
+          standing.firstResults = riderStageResults;
+        }
+      }
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package cycling;
 
+import java.io.Serializable;
+
 /**
  * Contains attributes and methods to do with IDs, each class that needs an ID inherits this.
  *
@@ -7,7 +9,9 @@ package cycling;
  * @author Daniel Moulton
  * @version 1.0
  */
-public class IdHaver {
+public class IdHaver implements Serializable {
+  private static final long serialVersionUID = 6280308386995799769L;
+
   private int id;
 
   
@@ -0,0 +1,224 @@
+package cycling;
+
+/**
+ * Sorts arrays of indices by a primitive long key (i.e. elapsed times) without boxing.
+ * The sort is stable, so indices with equal keys keep the order they were given in. The first
+ * few indices in any order can also be picked out without sorting them all.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class IndexSort {
+
+  private static final int INSERTION_SORT_RUN = 16; // Runs shorter than this are insertion sorted
+
+  private IndexSort() {
+  }
+
+  /**
+   * Fills the first length entries of an index array with 0, 1, 2 ... length - 1.
+   *
+   * @param order Array to fill.
+   * @param length Number of entries to fill.
+   */
+  public static void identity(int[] order, int length) {
+    for (int i = 0; i < length; i++) {
+      order[i] = i;
+    }
+  }
+
+  /**
+   * Stable sorts the first length entries of order ascending by keys[order[i]].
+   *
+   * @param order Indices into keys, sorted in place.
+   * @param keys Key for each index.
+   * @param buffer Scratch space, at least length long.
+   * @param length Number of entries of order to sort.
+   */
+  public static void sort(int[] order, long[] keys, int[] buffer, int length) {
+    for (int start = 0; start < length; start += INSERTION_SORT_RUN) {
+      insertionSort(order, keys, start, Math.min(start + INSERTION_SORT_RUN, length));
+    }
+    int[] from = order;
+    int[] to = buffer;
+    for (int width = INSERTION_SORT_RUN; width < length; width *= 2) {
+      for (int low = 0; low < length; low += 2 * width) {
+        int middle = Math.min(low + width, length);
+        int high = Math.min(low + 2 * width, length);
+        merge(from, to, keys, low, middle, high);
+      }
+      int[] swap = from;
+      from = to;
+      to = swap;
+    }
+    if (from != order) {
+      System.arraycopy(from, 0, order, 0, length);
+    }
+  }
+
+  /**
+   * Compares two indices, e.g. by values stored in arrays at those indices, without boxing.
+   */
+  public interface IndexOrder {
+    /**
+     * Compares two indices.
+     *
+     * @param a The first index.
+     * @param b The second index.
+     * @return Negative if a comes first, positive if b comes first, 0 if they are equal.
+     */
+    int compare(int a, int b);
+  }
+
+  /**
+   * Finds the indices with the k smallest keys among 0 ... length - 1, in order, using a
+   * heap of at most k indices rather than sorting them all. Indices with equal keys come
+   * out lowest index first, the same as sort would put them.
+   *
+   * @param keys Key for each index.
+   * @param length Number of indices to choose from.
+   * @param k Maximum number of indices to return.
+   * @return The min(k, length) indices with the smallest keys, sorted by key.
+   */
+  public static int[] top(long[] keys, int length, int k) {
+    return top(length, k, (a, b) -> Long.compare(keys[a], keys[b]));
+  }
+
+  /**
+   * Finds the first k indices among 0 ... length - 1 in the given order, in order, using a
+   * heap of at most k indices rather than sorting them all. Indices the order finds equal
+   * come out lowest index first.
+   *
+   * @param length Number of indices to choose from.
+   * @param k Maximum number of indices to return.
+   * @param order The order to choose indices in.
+   * @return The first min(k, length) indices, sorted.
+   */
+  public static int[] top(int length, int k, IndexOrder order) {
+    int[] heap = new int[Math.min(k, length)];
+    int heapSize = 0;
+    for (int index = 0; index < length; index++) {
+      if (heapSize < heap.length) {
+        heap[heapSize] = index;
+        siftUp(heap, order, heapSize++);
+      } else if (heapSize > 0 && order.compare(index, heap[0]) < 0) {
+        // Later indices never beat an equal index, so only one strictly before gets in
+        heap[0] = index;
+        siftDown(heap, order, 0, heapSize);
+      }
+    }
+    // Taking the root off each time leaves the indices in order from the back
+    for (int end = heapSize - 1; end > 0; end--) {
+      int root = heap[0];
+      heap[0] = heap[end];
+      heap[end] = root;
+      siftDown(heap, order, 0, end);
+    }
+    return heap;
+  }
+
+  /**
+   * Checks whether one index comes after another, by the order and then by index.
+   *
+   * @param order The order to compare indices in.
+   * @param a The first index.
+   * @param b The second index.
+   * @return true if a comes after b
+   */
+  private static boolean after(IndexOrder order, int a, int b) {
+    int comparison = order.compare(a, b);
+    return comparison > 0 || (comparison == 0 && a > b);
+  }
+
+  /**
+   * Moves an entry of a heap up until its parent comes after it, keeping the index that
+   * comes last at the root.
+   *
+   * @param heap The heap of indices.
+   * @param order The order to compare indices in.
+   * @param position Position of the entry to move.
+   */
+  private static void siftUp(int[] heap, IndexOrder order, int position) {
+    int index = heap[position];
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (!after(order, index, heap[parent])) {
+        break;
+      }
+      heap[position] = heap[parent];
+      position = parent;
+    }
+    heap[position] = index;
+  }
+
+  /**
+   * Moves an entry of a heap down until both its children come before it.
+   *
+   * @param heap The heap of indices.
+   * @param order The order to compare indices in.
+   * @param position Position of the entry to move.
+   * @param heapSize Number of entries in the heap.
+   */
+  private static void siftDown(int[] heap, IndexOrder order, int position, int heapSize) {
+    int index = heap[position];
+    while (true) {
+      int child = 2 * position + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && after(order, heap[child + 1], heap[child])) {
+        child++;
+      }
+      if (!after(order, heap[child], index)) {
+        break;
+      }
+      heap[position] = heap[child];
+      position = child;
+    }
+    heap[position] = index;
+  }
+
+  /**
+   * Insertion sorts a short run of the index array by key.
+   *
+   * @param order Indices into keys, sorted in place.
+   * @param keys Key for each index.
+   * @param start First entry of the run.
+   * @param end Entry after the last entry of the run.
+   */
+  private static void insertionSort(int[] order, long[] keys, int start, int end) {
+    for (int i = start + 1; i < end; i++) {
+      int index = order[i];
+      long key = keys[index];
+      int j = i - 1;
+      while (j >= start && keys[order[j]] > key) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = index;
+    }
+  }
+
+  /**
+   * Merges two neighbouring sorted runs of one index array into another.
+   *
+   * @param from Array holding the sorted runs from[low, middle) and from[middle, high).
+   * @param to Array the merged run is written to, at to[low, high).
+   * @param keys Key for each index.
+   * @param low Start of the first run.
+   * @param middle Start of the second run.
+   * @param high End of the second run.
+   */
+  private static void merge(int[] from, int[] to, long[] keys, int low, int middle, int high) {
+    int left = low;
+    int right = middle;
+    for (int i = low; i < high; i++) {
+      if (left < middle && (right >= high || keys[from[left]] <= keys[from[right]])) {
+        to[i] = from[left++];
+      } else {
+        to[i] = from[right++];
+      }
+    }
+  }
+}
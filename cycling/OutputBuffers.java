@@ -0,0 +1,77 @@
+package cycling;
+
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
+
+/**
+ * Copies query results into buffers supplied by the caller, so callers that poll the portal
+ * can reuse the same buffer rather than getting a new array every time. Nothing is written
+ * unless the whole result fits.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class OutputBuffers {
+
+  private OutputBuffers() {
+  }
+
+  /**
+   * Will throw an IndexOutOfBoundsException if a buffer doesn't have room for the values
+   * being written into it.
+   *
+   * @param bufferLength Length of the buffer.
+   * @param offset Position in the buffer the first value goes in.
+   * @param count Number of values being written.
+   */
+  public static void checkSpace(int bufferLength, int offset, int count) {
+    if (offset < 0 || offset > bufferLength - count) {
+      throw new IndexOutOfBoundsException("Buffer of length " + bufferLength
+        + " has no room for " + count + " values at offset " + offset);
+    }
+  }
+
+  /**
+   * Copies values into an array starting at an offset.
+   *
+   * @param values Values to copy.
+   * @param buffer Array to copy them into.
+   * @param offset Position in the array to copy the first value to.
+   * @return The number of values copied.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public static int write(int[] values, int[] buffer, int offset) {
+    checkSpace(buffer.length, offset, values.length);
+    System.arraycopy(values, 0, buffer, offset, values.length);
+    return values.length;
+  }
+
+  /**
+   * Copies values into a buffer at its current position, which is moved past them.
+   *
+   * @param values Values to copy.
+   * @param buffer Buffer to copy them into.
+   * @return The number of values copied.
+   * @throws BufferOverflowException If the buffer has fewer values remaining than are copied.
+   */
+  public static int write(int[] values, IntBuffer buffer) {
+    buffer.put(values);
+    return values.length;
+  }
+
+  /**
+   * Copies values into an array starting at an offset.
+   *
+   * @param values Values to copy.
+   * @param buffer Array to copy them into.
+   * @param offset Position in the array to copy the first value to.
+   * @return The number of values copied.
+   * @throws IndexOutOfBoundsException If the array has no room for the values at the offset.
+   */
+  public static int write(long[] values, long[] buffer, int offset) {
+    checkSpace(buffer.length, offset, values.length);
+    System.arraycopy(values, 0, buffer, offset, values.length);
+    return values.length;
+  }
+}
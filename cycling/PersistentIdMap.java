@@ -0,0 +1,282 @@
+package cycling;
+
+import java.util.Arrays;
+
+/**
+ * A map from IDs to values which never changes once made: adding or removing an ID makes a
+ * new map and leaves the old one as it was. The new map shares everything but the path to the
+ * changed ID with the old one, so a change only copies a few small nodes whatever the size of
+ * the map, and old maps can be kept and read by any number of threads without locks.
+ *
+ * <p>It is a hash array mapped trie, using the IDs themselves as the hash. Each node branches
+ * on 5 bits of the ID, lowest bits first, and only holds the branches that are used, marked
+ * in a bitmap, so nodes stay small however sparse the IDs are. An ID sits as high in the trie
+ * as the IDs around it allow, so looking one up takes at most 7 steps and usually 2 or 3.
+ *
+ * @param <V> type of the values, which can't be null
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class PersistentIdMap<V> {
+
+  private static final int BITS = 5; // Bits of the ID each level of the trie branches on
+  private static final int MASK = (1 << BITS) - 1;
+
+  private static final PersistentIdMap<Object> EMPTY
+      = new PersistentIdMap<Object>(new Node(0, new Object[0]), 0);
+
+  private final Node root;
+  private final int size; // Number of IDs in the map
+
+  /**
+   * A branch of the trie. Each child is either another Node or an Entry.
+   */
+  private static class Node {
+    private final int bitmap; // Bit b is set if there is a child for branch b
+    private final Object[] children; // Children of the branches used, in branch order
+
+    /**
+     * Constructor for the Node class.
+     *
+     * @param bitmap branches used
+     * @param children children of the branches used, in branch order
+     */
+    private Node(int bitmap, Object[] children) {
+      this.bitmap = bitmap;
+      this.children = children;
+    }
+  }
+
+  /**
+   * An ID and its value.
+   */
+  private static class Entry {
+    private final int id;
+    private final Object value;
+
+    /**
+     * Constructor for the Entry class.
+     *
+     * @param id the ID
+     * @param value its value
+     */
+    private Entry(int id, Object value) {
+      this.id = id;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Constructor for the PersistentIdMap class.
+   *
+   * @param root root of the trie
+   * @param size number of IDs in the trie
+   */
+  private PersistentIdMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Gets the empty map.
+   *
+   * @param <V> type of the values
+   * @return a map with no IDs in it
+   */
+  @SuppressWarnings("unchecked")
+  public static <V> PersistentIdMap<V> empty() {
+    return (PersistentIdMap<V>) EMPTY;
+  }
+
+  /**
+   * Gets the number of IDs in the map.
+   *
+   * @return number of IDs
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the value of an ID.
+   *
+   * @param id the ID
+   * @return its value, or null if the ID isn't in the map
+   */
+  @SuppressWarnings("unchecked")
+  public V get(int id) {
+    Node node = root;
+    for (int shift = 0; ; shift += BITS) {
+      int bit = 1 << ((id >>> shift) & MASK);
+      if ((node.bitmap & bit) == 0) {
+        return null;
+      }
+      Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+      if (child instanceof Entry) {
+        Entry entry = (Entry) child;
+        return entry.id == id ? (V) entry.value : null;
+      }
+      node = (Node) child;
+    }
+  }
+
+  /**
+   * Makes a map with an ID set to a value, leaving this map as it is.
+   *
+   * @param id the ID
+   * @param value its new value
+   * @return the new map, or this one if the ID already had the value
+   */
+  public PersistentIdMap<V> with(int id, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("A map can't hold a null value.");
+    }
+    V previous = get(id);
+    if (previous == value) {
+      return this;
+    }
+    Node newRoot = with(root, 0, new Entry(id, value));
+    return new PersistentIdMap<V>(newRoot, previous == null ? size + 1 : size);
+  }
+
+  /**
+   * Makes a copy of a node's subtrie with an entry added, or replacing the entry with the same
+   * ID.
+   *
+   * @param node root of the subtrie
+   * @param shift position of the bits of the ID the node branches on
+   * @param entry the entry to add
+   * @return the new subtrie
+   */
+  private static Node with(Node node, int shift, Entry entry) {
+    int bit = 1 << ((entry.id >>> shift) & MASK);
+    int index = Integer.bitCount(node.bitmap & (bit - 1));
+    if ((node.bitmap & bit) == 0) {
+      Object[] children = new Object[node.children.length + 1];
+      System.arraycopy(node.children, 0, children, 0, index);
+      children[index] = entry;
+      System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+      return new Node(node.bitmap | bit, children);
+    }
+    Object child = node.children[index];
+    Object newChild;
+    if (child instanceof Node) {
+      newChild = with((Node) child, shift + BITS, entry);
+    } else if (((Entry) child).id == entry.id) {
+      newChild = entry;
+    } else {
+      newChild = pair(shift + BITS, (Entry) child, entry);
+    }
+    Object[] children = node.children.clone();
+    children[index] = newChild;
+    return new Node(node.bitmap, children);
+  }
+
+  /**
+   * Makes a subtrie holding two entries whose IDs share every bit below a position.
+   *
+   * @param shift position of the bits of the IDs the subtrie's root branches on
+   * @param a the first entry
+   * @param b the second entry, with a different ID
+   * @return the subtrie
+   */
+  private static Node pair(int shift, Entry a, Entry b) {
+    int branchA = (a.id >>> shift) & MASK;
+    int branchB = (b.id >>> shift) & MASK;
+    if (branchA == branchB) {
+      return new Node(1 << branchA, new Object[] {pair(shift + BITS, a, b)});
+    }
+    Object[] children = branchA < branchB ? new Object[] {a, b} : new Object[] {b, a};
+    return new Node((1 << branchA) | (1 << branchB), children);
+  }
+
+  /**
+   * Makes a map without an ID, leaving this map as it is.
+   *
+   * @param id the ID
+   * @return the new map, or this one if the ID isn't in it
+   */
+  public PersistentIdMap<V> without(int id) {
+    if (get(id) == null) {
+      return this;
+    }
+    Object newRoot = without(root, 0, id);
+    if (newRoot == null) {
+      return empty();
+    }
+    if (newRoot instanceof Entry) {
+      // The root is the only node that can hold a single entry
+      Entry entry = (Entry) newRoot;
+      newRoot = new Node(1 << (entry.id & MASK), new Object[] {entry});
+    }
+    return new PersistentIdMap<V>((Node) newRoot, size - 1);
+  }
+
+  /**
+   * Makes a copy of a node's subtrie with an ID that is in it removed. A subtrie left with a
+   * single entry is replaced by the entry, so it can move up the trie.
+   *
+   * @param node root of the subtrie
+   * @param shift position of the bits of the ID the node branches on
+   * @param id the ID
+   * @return the new subtrie, a single entry, or null if the subtrie is left empty
+   */
+  private static Object without(Node node, int shift, int id) {
+    int bit = 1 << ((id >>> shift) & MASK);
+    int index = Integer.bitCount(node.bitmap & (bit - 1));
+    Object child = node.children[index];
+    Object newChild = child instanceof Node ? without((Node) child, shift + BITS, id) : null;
+
+    if (newChild == null) {
+      if (node.children.length == 1) {
+        return null;
+      }
+      if (node.children.length == 2 && node.children[1 - index] instanceof Entry) {
+        return node.children[1 - index];
+      }
+      Object[] children = new Object[node.children.length - 1];
+      System.arraycopy(node.children, 0, children, 0, index);
+      System.arraycopy(node.children, index + 1, children, index, children.length - index);
+      return new Node(node.bitmap & ~bit, children);
+    }
+    if (newChild instanceof Entry && node.children.length == 1) {
+      return newChild;
+    }
+    Object[] children = node.children.clone();
+    children[index] = newChild;
+    return new Node(node.bitmap, children);
+  }
+
+  /**
+   * Gets every ID in the map.
+   *
+   * @return the IDs in ascending order
+   */
+  public int[] getIds() {
+    int[] ids = new int[size];
+    int count = collectIds(root, ids, 0);
+    assert count == size : "the size doesn't match the trie";
+    Arrays.sort(ids);
+    return ids;
+  }
+
+  /**
+   * Adds the IDs in a node's subtrie to an array.
+   *
+   * @param node root of the subtrie
+   * @param ids array to add the IDs to
+   * @param count number of IDs already in the array
+   * @return number of IDs in the array afterwards
+   */
+  private static int collectIds(Node node, int[] ids, int count) {
+    for (Object child : node.children) {
+      if (child instanceof Entry) {
+        ids[count++] = ((Entry) child).id;
+      } else {
+        count = collectIds((Node) child, ids, count);
+      }
+    }
+    return count;
+  }
+}
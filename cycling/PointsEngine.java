@@ -0,0 +1,172 @@
+package cycling;
+
+/**
+ * Awards points and mountain points to the riders in a stage. Points are read straight
+ * from primitive tables by finishing position, where a rider's position is their place in
+ * the sorted order (no list copies or searches).
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class PointsEngine {
+
+  //Array of segment points to be awarded depending on position (and type)
+  private static final int[] SPRINT_SEGMENT_POINTS =
+    {20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1};
+  private static final int[] HC_SEGMENT_POINTS =
+    {20, 15, 12, 10, 8, 6, 4, 2};
+  private static final int[] C1_SEGMENT_POINTS =
+    {10, 8, 6, 4, 2, 1};
+  private static final int[] C2_SEGMENT_POINTS =
+    {5, 3, 2, 1};
+  private static final int[] C3_SEGMENT_POINTS =
+    {2, 1};
+  private static final int[] C4_SEGMENT_POINTS =
+    {1};
+
+  //Array of stage points to be awarded depending on position (and type)
+
+  private static final int[] FLAT_STAGE_POINTS =
+    {50, 30, 20, 18, 16, 14, 12, 10, 8, 7, 6, 5, 4, 3, 2};
+  private static final int[] MM_STAGE_POINTS =
+    {30, 25, 22, 19, 17, 15, 13, 11, 9, 7, 6, 5, 4, 3, 2};
+  private static final int[] HM_STAGE_POINTS =
+    {20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5,  4, 3, 2, 1};
+  private static final int[] TT_STAGE_POINTS =
+    {20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1};
+
+  private PointsEngine() {
+  }
+
+  /**
+   * Gets the points awarded for each finishing position in a type of stage.
+   *
+   * @param type The type of the stage.
+   * @return Points indexed by position, positions past the end of the array get 0.
+   */
+  public static int[] stagePoints(StageType type) {
+    switch (type) {
+      case FLAT:
+        return FLAT_STAGE_POINTS;
+      case MEDIUM_MOUNTAIN:
+        return MM_STAGE_POINTS;
+      case HIGH_MOUNTAIN:
+        return HM_STAGE_POINTS;
+      case TT:
+        return TT_STAGE_POINTS;
+      default:
+        throw new AssertionError(type);
+    }
+  }
+
+  /**
+   * Gets the points awarded for each position in a type of segment.
+   *
+   * @param type The type of the segment.
+   * @return Points indexed by position, positions past the end of the array get 0.
+   */
+  public static int[] segmentPoints(SegmentType type) {
+    switch (type) {
+      case SPRINT:
+        return SPRINT_SEGMENT_POINTS;
+      case C4:
+        return C4_SEGMENT_POINTS;
+      case C3:
+        return C3_SEGMENT_POINTS;
+      case C2:
+        return C2_SEGMENT_POINTS;
+      case C1:
+        return C1_SEGMENT_POINTS;
+      case HC:
+        return HC_SEGMENT_POINTS;
+      default:
+        throw new AssertionError(type);
+    }
+  }
+
+  /**
+   * Works out the (sprint) points of all the riders in a given stage, i.e. their points for
+   * finishing position plus their points in every intermediate sprint. Nothing is written to
+   * the stage, so several threads can score it at once.
+   *
+   * @param stage The stage to award (sprint) points within.
+   * @param byElapsedTime Slots of the stage's result store sorted by elapsed time.
+   * @return Points of each rider, indexed by slot.
+   */
+  public static int[] pointsInStage(Stage stage, int[] byElapsedTime) {
+    StageResultStore results = stage.getResultStore();
+    int numRiders = results.size();
+    int[] points = new int[numRiders];
+    long[] keys = new long[numRiders];
+    int[] order = new int[numRiders];
+    int[] buffer = new int[numRiders];
+
+    int[] stagePoints = stagePoints(stage.getType());
+    for (int position = 0; position < Math.min(numRiders, stagePoints.length); position++) {
+      points[byElapsedTime[position]] += stagePoints[position];
+    }
+
+    for (Segment segment : stage.getSegments()) {
+      if (segment.getSegmentType() == SegmentType.SPRINT) {
+        sortBySegmentTime(results, segment.getIndex(), byElapsedTime, keys, order, buffer);
+        for (int position = 0; position < Math.min(numRiders, SPRINT_SEGMENT_POINTS.length);
+            position++) {
+          points[order[position]] += SPRINT_SEGMENT_POINTS[position];
+        }
+      }
+    }
+    return points;
+  }
+
+  /**
+   * Works out the mountain points of all the riders in a given stage, from every categorised
+   * climb in the stage. Nothing is written to the stage, so several threads can score it at
+   * once.
+   *
+   * @param stage The stage to award mountain points within.
+   * @param byElapsedTime Slots of the stage's result store sorted by elapsed time.
+   * @return Mountain points of each rider, indexed by slot.
+   */
+  public static int[] mountainPointsInStage(Stage stage, int[] byElapsedTime) {
+    StageResultStore results = stage.getResultStore();
+    int numRiders = results.size();
+    int[] mountainPoints = new int[numRiders];
+    long[] keys = new long[numRiders];
+    int[] order = new int[numRiders];
+    int[] buffer = new int[numRiders];
+
+    for (Segment segment : stage.getSegments()) {
+      SegmentType segmentType = segment.getSegmentType();
+      if (segmentType != SegmentType.SPRINT) {
+        int[] segmentPoints = segmentPoints(segmentType);
+        sortBySegmentTime(results, segment.getIndex(), byElapsedTime, keys, order, buffer);
+        for (int position = 0; position < Math.min(numRiders, segmentPoints.length); position++) {
+          mountainPoints[order[position]] += segmentPoints[position];
+        }
+      }
+    }
+    return mountainPoints;
+  }
+
+  /**
+   * Orders the riders in a stage by their time in one segment. Riders with equal segment
+   * times stay in finishing order.
+   *
+   * @param results The stage's result store.
+   * @param segmentIndex Position of the segment within the stage.
+   * @param byElapsedTime Slots sorted by elapsed time.
+   * @param keys Scratch space for the segment times.
+   * @param order Filled with slots sorted by segment time.
+   * @param buffer Scratch space for the sort.
+   */
+  private static void sortBySegmentTime(StageResultStore results, int segmentIndex,
+      int[] byElapsedTime, long[] keys, int[] order, int[] buffer) {
+    int numRiders = results.size();
+    for (int slot = 0; slot < numRiders; slot++) {
+      keys[slot] = results.getSegmentTime(slot, segmentIndex);
+    }
+    System.arraycopy(byElapsedTime, 0, order, 0, numRiders);
+    IndexSort.sort(order, keys, buffer, numRiders);
+  }
+}
@@ -0,0 +1,438 @@
+package cycling;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * The classifications of every race and stage in a portal at one moment, which never change
+ * once made. ConcurrentCyclingPortal makes a new snapshot after every change, or every batch
+ * of changes from a ResultIngester, and publishes it in one step, so readers holding a
+ * snapshot can query it without any locks and never see a change that is only partly applied.
+ *
+ * <p>Snapshots are made after the change's locks have been released, so changes to the same
+ * race may try to publish in a different order to the one they were made in. Each race's
+ * standings are stamped with the order its stages' rankings were taken in, and standings
+ * older than the ones a snapshot already has are ignored rather than replacing them.
+ *
+ * <p>A new snapshot shares everything that didn't change with the one before it: each race's
+ * RaceStandings and each stage's StageRankings are the same objects the race and stage keep
+ * hold of, and the maps from IDs to them are PersistentIdMaps, so a new snapshot only copies
+ * the paths to the races and stages that changed rather than whole maps. Every getter returns
+ * a copy, so callers are free to modify what they are given.
+ *
+ * <p>Like the portal, a snapshot keeps times in nanoseconds and only turns them into LocalTimes
+ * in the getters returning them, so every race is in every snapshot and only those getters
+ * throw for a race whose GC times are 24 hours or more.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class PortalSnapshot {
+
+  private final long version; // Number of snapshots published before this one
+
+  private final Instant time; // When the snapshot was made
+
+  private final PersistentIdMap<RaceStandings> races; // Standings of each race by race ID
+
+  private final PersistentIdMap<StageRankings> stages; // Rankings of each stage by stage ID
+
+  private final PersistentIdMap<Long> stamps; // Stamps newer than the floor, by race ID
+
+  private final long floor; // Stamp every race was last taken at, older standings are ignored
+
+  /**
+   * The maps of a snapshot being made, changed one race at a time.
+   */
+  private static class Changes {
+    private PersistentIdMap<RaceStandings> races;
+    private PersistentIdMap<StageRankings> stages;
+    private PersistentIdMap<Long> stamps;
+
+    /**
+     * Constructor for the Changes class, starting from a snapshot's maps.
+     *
+     * @param snapshot the snapshot the changes are made to
+     */
+    private Changes(PortalSnapshot snapshot) {
+      races = snapshot.races;
+      stages = snapshot.stages;
+      stamps = snapshot.stamps;
+    }
+
+    /**
+     * Replaces a race's standings and the rankings of its stages. Stages whose rankings
+     * haven't changed are left as they are.
+     *
+     * @param raceId ID of the race
+     * @param standings the race's standings, or null to leave the race out
+     */
+    private void replace(int raceId, RaceStandings standings) {
+      RaceStandings previous = races.get(raceId);
+      HashSet<Integer> stageIds = new HashSet<Integer>();
+      if (standings != null) {
+        races = races.with(raceId, standings);
+        for (StageRankings rankings : standings.getStageRankings()) {
+          stages = stages.with(rankings.getStageId(), rankings);
+          stageIds.add(rankings.getStageId());
+        }
+      } else {
+        races = races.without(raceId);
+      }
+      // Stages the race no longer has
+      if (previous != null) {
+        for (StageRankings rankings : previous.getStageRankings()) {
+          if (!stageIds.contains(rankings.getStageId())) {
+            stages = stages.without(rankings.getStageId());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Constructor for the PortalSnapshot class, makes an empty snapshot of a new portal.
+   */
+  public PortalSnapshot() {
+    this(0, Instant.now(), PersistentIdMap.<RaceStandings>empty(),
+        PersistentIdMap.<StageRankings>empty(), PersistentIdMap.<Long>empty(), 0);
+  }
+
+  /**
+   * Constructor for the PortalSnapshot class, used to make the next version of a snapshot.
+   *
+   * @param version the snapshot's version
+   * @param time when the snapshot was made
+   * @param races standings of each race by race ID
+   * @param stages rankings of each stage by stage ID
+   * @param stamps stamps newer than the floor of races' standings, by race ID
+   * @param floor stamp every race was last taken at
+   */
+  private PortalSnapshot(long version, Instant time, PersistentIdMap<RaceStandings> races,
+      PersistentIdMap<StageRankings> stages, PersistentIdMap<Long> stamps, long floor) {
+    this.version = version;
+    this.time = time;
+    this.races = races;
+    this.stages = stages;
+    this.stamps = stamps;
+    this.floor = floor;
+  }
+
+  /**
+   * Gets the stamp of a race's standings.
+   *
+   * @param stamps stamps newer than the floor, by race ID
+   * @param floor stamp every race was last taken at
+   * @param raceId ID of the race
+   * @return the stamp, or the floor if the race's standings haven't been replaced since
+   */
+  private static long stampOf(PersistentIdMap<Long> stamps, long floor, int raceId) {
+    Long stamp = stamps.get(raceId);
+    return stamp == null ? floor : stamp;
+  }
+
+  /**
+   * Gets the time for the next snapshot, which is never before this one's even if the clock
+   * goes back.
+   *
+   * @return the time to give the next snapshot
+   */
+  private Instant nextTime() {
+    Instant now = Instant.now();
+    return now.isBefore(time) ? time : now;
+  }
+
+  /**
+   * Makes the next snapshot, with one race's standings and stage rankings replaced and every
+   * other race kept as it is, see withRaces.
+   *
+   * @param raceId ID of the race that changed
+   * @param standings the race's standings, or null to leave the race out
+   * @param stamp order the standings' rankings were taken in, higher for later ones
+   * @return the new snapshot, or this one if the standings given are out of date
+   */
+  public PortalSnapshot withRace(int raceId, RaceStandings standings, long stamp) {
+    return withRaces(new int[] {raceId}, new RaceStandings[] {standings}, new long[] {stamp});
+  }
+
+  /**
+   * Makes the next snapshot, with some races' standings and stage rankings replaced and every
+   * other race kept as it is, in a single version. A race whose standings in this snapshot
+   * were taken after the ones given keeps them, and if every race does this snapshot is
+   * returned unchanged.
+   *
+   * @param raceIds IDs of the races that changed, each given once
+   * @param standings the standings of each race, null for races to leave out
+   * @param stamps order each race's rankings were taken in, higher for later ones
+   * @return the new snapshot, or this one if all the standings given are out of date
+   */
+  public PortalSnapshot withRaces(int[] raceIds, RaceStandings[] standings, long[] stamps) {
+    Changes changes = new Changes(this);
+    for (int i = 0; i < raceIds.length; i++) {
+      if (stamps[i] > stampOf(changes.stamps, floor, raceIds[i])) {
+        changes.replace(raceIds[i], standings[i]);
+        changes.stamps = changes.stamps.with(raceIds[i], stamps[i]);
+      }
+    }
+    if (changes.stamps == this.stamps) {
+      return this;
+    }
+    return new PortalSnapshot(version + 1, nextTime(), changes.races, changes.stages,
+        changes.stamps, floor);
+  }
+
+  /**
+   * Makes the next snapshot, with every race replaced, e.g. after a change that could have
+   * affected any race. Races not given are left out of the new snapshot, apart from races
+   * whose standings in this snapshot were taken after the ones given, which are kept.
+   *
+   * @param raceIds IDs of every race
+   * @param standings the standings of each race, null for races to leave out
+   * @param stamp order the standings' rankings were taken in, higher for later ones
+   * @return the new snapshot, or this one if the standings given are out of date
+   */
+  public PortalSnapshot withAllRaces(int[] raceIds, RaceStandings[] standings, long stamp) {
+    if (stamp <= floor) {
+      return this;
+    }
+    Changes changes = new Changes(this);
+    HashSet<Integer> given = new HashSet<Integer>();
+    for (int i = 0; i < raceIds.length; i++) {
+      given.add(raceIds[i]);
+      if (stampOf(stamps, floor, raceIds[i]) < stamp) {
+        changes.replace(raceIds[i], standings[i]);
+      }
+    }
+    for (int raceId : races.getIds()) {
+      if (!given.contains(raceId) && stampOf(stamps, floor, raceId) < stamp) {
+        changes.replace(raceId, null);
+      }
+    }
+    // Stamps older than the new floor are covered by it
+    for (int raceId : stamps.getIds()) {
+      if (stamps.get(raceId) < stamp) {
+        changes.stamps = changes.stamps.without(raceId);
+      }
+    }
+    return new PortalSnapshot(version + 1, nextTime(), changes.races, changes.stages,
+        changes.stamps, stamp);
+  }
+
+  /**
+   * Will throw an IDNotRecognisedException if a race isn't in the snapshot.
+   *
+   * @param raceId ID of the race
+   * @return the race's standings
+   */
+  private RaceStandings race(int raceId) throws IDNotRecognisedException {
+    RaceStandings standings = races.get(raceId);
+    if (standings == null) {
+      throw new IDNotRecognisedException("Race ID " + raceId
+        + " not recognised in the snapshot.");
+    }
+    return standings;
+  }
+
+  /**
+   * Will throw an IDNotRecognisedException if a stage isn't in the snapshot.
+   *
+   * @param stageId ID of the stage
+   * @return the stage's rankings
+   */
+  private StageRankings stage(int stageId) throws IDNotRecognisedException {
+    StageRankings rankings = stages.get(stageId);
+    if (rankings == null) {
+      throw new IDNotRecognisedException("Stage ID " + stageId
+        + " not recognised in the snapshot.");
+    }
+    return rankings;
+  }
+
+  /**
+   * Gets the snapshot's version, which goes up by one with every snapshot published.
+   *
+   * @return version, 0 for an empty portal that has never changed
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Gets when the snapshot was made, i.e. just after the change it was made for.
+   *
+   * @return time the snapshot was made
+   */
+  public Instant getTime() {
+    return time;
+  }
+
+  /**
+   * Gets the IDs of the races in the snapshot.
+   *
+   * @return race IDs in ascending order
+   */
+  public int[] getRaceIds() {
+    return races.getIds();
+  }
+
+  /**
+   * Gets the IDs of a race's stages.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return The IDs of the race's stages, in race order.
+   * @throws IDNotRecognisedException If the ID does not match any race in the snapshot.
+   */
+  public int[] getRaceStages(int raceId) throws IDNotRecognisedException {
+    ArrayList<StageRankings> rankings = race(raceId).getStageRankings();
+    int[] stageIds = new int[rankings.size()];
+    for (int i = 0; i < stageIds.length; i++) {
+      stageIds[i] = rankings.get(i).getStageId();
+    }
+    return stageIds;
+  }
+
+  /**
+   * Gets a race's standings in every classification.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return The race's standings.
+   * @throws IDNotRecognisedException If the ID does not match any race in the snapshot.
+   */
+  public RaceStandings getRaceStandings(int raceId) throws IDNotRecognisedException {
+    return race(raceId);
+  }
+
+  /**
+   * Get the riders finished position in a stage.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return A list of riders ID sorted by their elapsed time.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the snapshot.
+   */
+  public int[] getRidersRankInStage(int stageId) throws IDNotRecognisedException {
+    return stage(stageId).getRiderIds().clone();
+  }
+
+  /**
+   * Get the adjusted elapsed times of riders in a stage.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return The ranked list of adjusted elapsed times sorted by their finish time.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the snapshot.
+   */
+  public LocalTime[] getRankedAdjustedElapsedTimesInStage(int stageId)
+      throws IDNotRecognisedException {
+    return stage(stageId).getAdjustedLocalTimes().clone();
+  }
+
+  /**
+   * Get the adjusted elapsed times of riders in a stage in nanoseconds.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return The ranked list of adjusted elapsed times in nanoseconds.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the snapshot.
+   */
+  public long[] getRankedAdjustedElapsedTimesInStageNanos(int stageId)
+      throws IDNotRecognisedException {
+    return stage(stageId).getAdjustedTimes().clone();
+  }
+
+  /**
+   * Get the number of points obtained by each rider in a stage.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return List of the number of points ordered by elapsed time.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the snapshot.
+   */
+  public int[] getRidersPointsInStage(int stageId) throws IDNotRecognisedException {
+    return stage(stageId).getPoints().clone();
+  }
+
+  /**
+   * Get the number of mountain points obtained by each rider in a stage.
+   *
+   * @param stageId The ID of the stage being queried.
+   * @return List of the mountain points ordered by elapsed time.
+   * @throws IDNotRecognisedException If the ID does not match any stage in the snapshot.
+   */
+  public int[] getRidersMountainPointsInStage(int stageId) throws IDNotRecognisedException {
+    return stage(stageId).getMountainPoints().clone();
+  }
+
+  /**
+   * Get the general classification rank of riders in a race.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return A ranked list of riders' IDs sorted ascending by the sum of their adjusted
+   *         elapsed times in all stages of the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the snapshot.
+   */
+  public int[] getRidersGeneralClassificationRank(int raceId) throws IDNotRecognisedException {
+    return race(raceId).getGeneralClassificationRank();
+  }
+
+  /**
+   * Get the general classification times of riders in a race.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return A list of riders' times sorted by the sum of their adjusted elapsed times in all
+   *         stages of the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the snapshot.
+   */
+  public LocalTime[] getGeneralClassificationTimesInRace(int raceId)
+      throws IDNotRecognisedException {
+    return race(raceId).getGeneralClassificationTimes();
+  }
+
+  /**
+   * Get the overall points of riders in a race.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return A list of riders' points sorted by the sum of their adjusted elapsed times in all
+   *         stages of the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the snapshot.
+   */
+  public int[] getRidersPointsInRace(int raceId) throws IDNotRecognisedException {
+    return race(raceId).getRidersPoints();
+  }
+
+  /**
+   * Get the overall mountain points of riders in a race.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return A list of riders' mountain points sorted by the sum of their adjusted elapsed
+   *         times in all stages of the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the snapshot.
+   */
+  public int[] getRidersMountainPointsInRace(int raceId) throws IDNotRecognisedException {
+    return race(raceId).getRidersMountainPoints();
+  }
+
+  /**
+   * Get the ranked list of riders based on the points classification in a race.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return A ranked list of riders' IDs sorted descending by the sum of their points in all
+   *         stages of the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the snapshot.
+   */
+  public int[] getRidersPointClassificationRank(int raceId) throws IDNotRecognisedException {
+    return race(raceId).getPointsClassificationRank();
+  }
+
+  /**
+   * Get the ranked list of riders based on the mountain classification in a race.
+   *
+   * @param raceId The ID of the race being queried.
+   * @return A ranked list of riders' IDs sorted descending by the sum of their mountain points
+   *         in all stages of the race.
+   * @throws IDNotRecognisedException If the ID does not match any race in the snapshot.
+   */
+  public int[] getRidersMountainPointClassificationRank(int raceId)
+      throws IDNotRecognisedException {
+    return race(raceId).getMountainPointsClassificationRank();
+  }
+}
@@ -1,7 +1,7 @@
 package cycling;
 
 import java.io.Serializable;
-import java.util.LinkedList;
+import java.util.ArrayList;
 
 /**
  * Represents a race.
@@ -11,12 +11,19 @@ import java.util.LinkedList;
  * @version 1.0
  */
 public class Race extends IdHaver implements Serializable {
+  private static final long serialVersionUID = 8817938974341522617L;
+
   private int id;
   private String name;
   private String description;
 
-  private LinkedList<Stage> stages 
-      = new LinkedList<Stage>(); // A Linked List of stages within this race
+  private ArrayList<Stage> stages 
+      = new ArrayList<Stage>(); // A List of stages within this race, sorted by start time
+
+  private transient GeneralClassification generalClassification; /* Running GC totals, rebuilt
+                                                                   when first needed */
+  private transient RaceStandings standings; // Standings last worked out, may be out of date
+  private transient RacePoints points; // Running points totals, rebuilt when first needed
   private static int numberOfRaces = 0; // The number of the races in existence.
 
   /**
@@ -33,12 +40,23 @@ public class Race extends IdHaver implements Serializable {
   }
 
   /**
-   * Adds a stage to this race.
+   * Adds a stage to this race, in its place by start time. Stages starting at the same time
+   * keep the order they were added in.
    *
    * @param stage The stage object that has been added to this race
    */
   public void addStage(Stage stage) {
-    stages.add(stage);
+    int low = 0;
+    int high = stages.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (stages.get(middle).getStartTime().compareTo(stage.getStartTime()) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    stages.add(low, stage);
   }
     
 
@@ -66,18 +84,66 @@ public class Race extends IdHaver implements Serializable {
   }
 
   /**
-   * Sorts and returns all stages ordered by their location in the race.
+   * Gets all stages, which are kept ordered by their location in the race.
+   * The list is the race's own and must not be modified.
    *
-   * @return An LinkedList of stages sorted by their location in the race.
+   * @return An ArrayList of stages sorted by their location in the race.
    */
-  public LinkedList<Stage> getStages() {
-    //sort them here
-    stages.sort((o1, o2)
-        -> o1.getStartTime().compareTo(
-        o2.getStartTime()));
+  public ArrayList<Stage> getStages() {
     return stages; 
   }
   
+  /**
+   * Gets the general classification of the race, brought up to date with the stages' results
+   * when it is read.
+   *
+   * @return the race's general classification
+   */
+  public synchronized GeneralClassification getGeneralClassification() {
+    if (generalClassification == null) {
+      generalClassification = new GeneralClassification(this);
+    }
+    return generalClassification;
+  }
+
+  /**
+   * Gets the riders' running points totals in the race, brought up to date with the stages'
+   * results when they are read.
+   *
+   * @return the race's points totals
+   */
+  public synchronized RacePoints getPoints() {
+    if (points == null) {
+      points = new RacePoints(this);
+    }
+    return points;
+  }
+
+  /**
+   * Gets the standings of the race in every classification, only working them out again if
+   * a stage has changed since they were last asked for.
+   *
+   * @return the race's standings
+   */
+  public synchronized RaceStandings getStandings() {
+    if (standings == null || !standings.isCurrent(this)) {
+      standings = new RaceStandings(this);
+    }
+    return standings;
+  }
+
+  /**
+   * Gets the standings of the race only if they are up to date, without working them out.
+   *
+   * @return the race's standings, or null if they haven't been worked out since a stage changed
+   */
+  public synchronized RaceStandings getCurrentStandings() {
+    if (standings == null || !standings.isCurrent(this)) {
+      return null;
+    }
+    return standings;
+  }
+
   /**
    * Gets the name of the race.
    *
@@ -102,4 +168,14 @@ public class Race extends IdHaver implements Serializable {
   public static void resetIdCounter() {
     numberOfRaces = 0;
   }
+
+  /**
+   * Sets the number of races, used when loading the cycling portal so new IDs don't clash
+   * with the loaded ones.
+   *
+   * @param highestId the highest race ID already in use
+   */
+  public static void resetIdCounter(int highestId) {
+    numberOfRaces = highestId;
+  }
 }
@@ -0,0 +1,103 @@
+package cycling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Every rider's total (sprint) points and mountain points in a race, kept between queries in
+ * the same way as the GC's totals: only the stages whose rankings have changed since the last
+ * query are looked at again, taking away the points of the rankings last included and adding
+ * the new ones. This lets the leaders of the points classifications be picked without adding
+ * up every stage of the race.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class RacePoints {
+
+  private final Race race;
+
+  private HashMap<Stage, StageRankings> applied
+      = new HashMap<Stage, StageRankings>(); // Rankings of each stage included in the totals
+
+  private int[] points = new int[0]; // Total points of each rider, indexed by rider ID
+  private int[] mountainPoints = new int[0]; // Total mountain points, indexed by rider ID
+
+  /**
+   * Constructor for the RacePoints class.
+   *
+   * @param race the race to total
+   */
+  public RacePoints(Race race) {
+    this.race = race;
+  }
+
+  /**
+   * Gets the riders with the most total points, without sorting every rider. Riders on equal
+   * points are ordered by where they first appear in the race.
+   *
+   * @param mountain true for mountain points, false for (sprint) points
+   * @param k maximum number of riders to get
+   * @return IDs of up to k riders, most points first
+   */
+  public synchronized int[] getTopRiders(boolean mountain, int k) {
+    update();
+    return race.getGeneralClassification().getTopRiders(mountain ? mountainPoints : points, k);
+  }
+
+  /**
+   * Brings the totals up to date with the race's stages, replacing the points of every stage
+   * whose rankings have changed and taking away those of stages no longer in the race.
+   */
+  private void update() {
+    ArrayList<Stage> stages = race.getStages();
+    for (Stage stage : stages) {
+      StageRankings current = stage.getRankings();
+      StageRankings previous = applied.get(stage);
+      if (previous != current) {
+        applyStage(previous, -1);
+        applyStage(current, 1);
+        applied.put(stage, current);
+      }
+    }
+    if (applied.size() > stages.size()) {
+      Iterator<Map.Entry<Stage, StageRankings>> iterator = applied.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Stage, StageRankings> entry = iterator.next();
+        if (!stages.contains(entry.getKey())) {
+          applyStage(entry.getValue(), -1);
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds one stage's points to the totals, or takes them away.
+   *
+   * @param rankings the stage's rankings, or null if there is nothing to add or take away
+   * @param sign 1 to add the points, -1 to take them away
+   */
+  private void applyStage(StageRankings rankings, int sign) {
+    if (rankings == null) {
+      return;
+    }
+    int[] riderIds = rankings.getRiderIds();
+    int[] stagePoints = rankings.getPoints();
+    int[] stageMountainPoints = rankings.getMountainPoints();
+    for (int i = 0; i < riderIds.length; i++) {
+      int riderId = riderIds[i];
+      if (riderId >= points.length) {
+        int newCapacity = Math.max(riderId + 1, points.length * 2);
+        points = Arrays.copyOf(points, newCapacity);
+        mountainPoints = Arrays.copyOf(mountainPoints, newCapacity);
+      }
+      points[riderId] += sign * stagePoints[i];
+      mountainPoints[riderId] += sign * stageMountainPoints[i];
+    }
+  }
+}
@@ -0,0 +1,273 @@
+package cycling;
+
+import java.nio.IntBuffer;
+import java.time.LocalTime;
+import java.util.ArrayList;
+
+/**
+ * All the classifications of a race at once: the general classification (GC), the points
+ * classification and the mountain classification. Built from a single pass over the rankings
+ * of the race's stages, rather than one pass per classification.
+ *
+ * <p>Standings are worked out in two steps. Taking the stages' current rankings, with
+ * captureRankings, reads the race and must be done while it can't change, but only ranks
+ * and scores the stages whose results changed. Everything else is worked out from those
+ * rankings alone, which never change, so ConcurrentCyclingPortal does it after releasing the
+ * race's lock.
+ *
+ * <p>The race keeps hold of its standings until one of its stages changes. Every getter
+ * returns a copy, so callers are free to modify what they are given.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class RaceStandings {
+
+  private final ArrayList<StageRankings> stageRankings; // Rankings of each stage used
+
+  private final int[] generalClassificationRank; // Rider IDs sorted by total adjusted time
+  private final long[] generalClassificationTimes; // Total adjusted times in GC order, in ns
+
+  private final int[] ridersPoints; // Total points, sorted by total elapsed time
+  private final int[] ridersMountainPoints; // Total mountain points, sorted by elapsed time
+
+  private final int[] pointsClassificationRank; // Rider IDs sorted by total points
+  private final int[] mountainPointsClassificationRank; // Rider IDs sorted by mountain points
+
+  /**
+   * Constructor for the RaceStandings class, works out a race's current standings.
+   *
+   * @param race the race to work out the standings of
+   */
+  public RaceStandings(Race race) {
+    this(captureRankings(race));
+  }
+
+  /**
+   * Constructor for the RaceStandings class, works out the standings from rankings taken
+   * earlier by captureRankings. Doesn't look at the race, so it may have changed since.
+   *
+   * @param stageRankings rankings of each stage in the race, in race order
+   */
+  public RaceStandings(ArrayList<StageRankings> stageRankings) {
+    this.stageRankings = stageRankings;
+
+    RaceTotals totals = new RaceTotals(stageRankings);
+    int[] byAdjustedTime = totals.getSlotsByAdjustedTime();
+    int[] byElapsedTime = totals.getSlotsByElapsedTime();
+    int[] byPoints = totals.getSlotsByPoints();
+    int[] byMountainPoints = totals.getSlotsByMountainPoints();
+    generalClassificationRank = new int[totals.size()];
+    generalClassificationTimes = new long[totals.size()];
+    ridersPoints = new int[totals.size()];
+    ridersMountainPoints = new int[totals.size()];
+    pointsClassificationRank = new int[totals.size()];
+    mountainPointsClassificationRank = new int[totals.size()];
+    for (int i = 0; i < totals.size(); i++) {
+      generalClassificationRank[i] = totals.getRiderId(byAdjustedTime[i]);
+      generalClassificationTimes[i] = totals.getAdjustedTime(byAdjustedTime[i]);
+      ridersPoints[i] = totals.getPoints(byElapsedTime[i]);
+      ridersMountainPoints[i] = totals.getMountainPoints(byElapsedTime[i]);
+      pointsClassificationRank[i] = totals.getRiderId(byPoints[i]);
+      mountainPointsClassificationRank[i] = totals.getRiderId(byMountainPoints[i]);
+    }
+  }
+
+  /**
+   * Gets the current rankings of each stage in the race, in race order, with their points
+   * worked out so they never need to look at the stages again. Must be called while the race
+   * can't change, only stages whose results changed since they were last ranked are ranked
+   * again.
+   *
+   * @param race the race
+   * @return the stages' rankings
+   */
+  public static ArrayList<StageRankings> captureRankings(Race race) {
+    ArrayList<StageRankings> rankings = new ArrayList<StageRankings>();
+    for (Stage stage : race.getStages()) {
+      StageRankings stageRankings = stage.getRankings();
+      stageRankings.getPoints();
+      stageRankings.getMountainPoints();
+      rankings.add(stageRankings);
+    }
+    return rankings;
+  }
+
+  /**
+   * Checks whether the standings still match the race, i.e. no stage has been added,
+   * removed or had its results changed since they were worked out.
+   *
+   * @param race the race the standings were worked out for
+   * @return true if the standings are up to date
+   */
+  public boolean isCurrent(Race race) {
+    ArrayList<Stage> stages = race.getStages();
+    if (stages.size() != stageRankings.size()) {
+      return false;
+    }
+    for (int i = 0; i < stages.size(); i++) {
+      if (stages.get(i).getRankings() != stageRankings.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the rankings of each stage the standings were worked out from, in race order. Their
+   * points have all been worked out, so they can be read after the stages have changed.
+   *
+   * @return the stages' rankings
+   */
+  public ArrayList<StageRankings> getStageRankings() {
+    return new ArrayList<StageRankings>(stageRankings);
+  }
+
+  /**
+   * Gets the IDs of the riders sorted by their total adjusted time.
+   *
+   * @return rider IDs in GC order
+   */
+  public int[] getGeneralClassificationRank() {
+    return generalClassificationRank.clone();
+  }
+
+  /**
+   * Gets the riders' total adjusted times, in GC order. The times are kept in nanoseconds and
+   * only turned into LocalTimes here, so the other classifications can still be read for a
+   * race whose totals reach 24 hours.
+   *
+   * @return total adjusted times
+   * @throws java.time.DateTimeException If a total is 24 hours or more.
+   */
+  public LocalTime[] getGeneralClassificationTimes() {
+    LocalTime[] times = new LocalTime[generalClassificationTimes.length];
+    for (int i = 0; i < times.length; i++) {
+      times[i] = StageResultStore.nanoToLocalTime(generalClassificationTimes[i]);
+    }
+    return times;
+  }
+
+  /**
+   * Gets the riders' total (sprint) points, sorted by total elapsed time.
+   *
+   * @return total points
+   */
+  public int[] getRidersPoints() {
+    return ridersPoints.clone();
+  }
+
+  /**
+   * Copies the riders' total (sprint) points, sorted by total elapsed time, into an array.
+   *
+   * @param buffer array to copy into
+   * @param offset position in the array to copy the first value to
+   * @return number of values copied
+   */
+  public int getRidersPoints(int[] buffer, int offset) {
+    return OutputBuffers.write(ridersPoints, buffer, offset);
+  }
+
+  /**
+   * Copies the riders' total (sprint) points, sorted by total elapsed time, into a buffer at its
+   * current position.
+   *
+   * @param buffer buffer to copy into
+   * @return number of values copied
+   */
+  public int getRidersPoints(IntBuffer buffer) {
+    return OutputBuffers.write(ridersPoints, buffer);
+  }
+
+  /**
+   * Gets the riders' total mountain points, sorted by total elapsed time.
+   *
+   * @return total mountain points
+   */
+  public int[] getRidersMountainPoints() {
+    return ridersMountainPoints.clone();
+  }
+
+  /**
+   * Copies the riders' total mountain points, sorted by total elapsed time, into an array.
+   *
+   * @param buffer array to copy into
+   * @param offset position in the array to copy the first value to
+   * @return number of values copied
+   */
+  public int getRidersMountainPoints(int[] buffer, int offset) {
+    return OutputBuffers.write(ridersMountainPoints, buffer, offset);
+  }
+
+  /**
+   * Copies the riders' total mountain points, sorted by total elapsed time, into a buffer at its
+   * current position.
+   *
+   * @param buffer buffer to copy into
+   * @return number of values copied
+   */
+  public int getRidersMountainPoints(IntBuffer buffer) {
+    return OutputBuffers.write(ridersMountainPoints, buffer);
+  }
+
+  /**
+   * Gets the IDs of the riders sorted by their total (sprint) points.
+   *
+   * @return rider IDs in points classification order
+   */
+  public int[] getPointsClassificationRank() {
+    return pointsClassificationRank.clone();
+  }
+
+  /**
+   * Copies the riders' IDs sorted by total points, into an array.
+   *
+   * @param buffer array to copy into
+   * @param offset position in the array to copy the first value to
+   * @return number of values copied
+   */
+  public int getPointsClassificationRank(int[] buffer, int offset) {
+    return OutputBuffers.write(pointsClassificationRank, buffer, offset);
+  }
+
+  /**
+   * Copies the riders' IDs sorted by total points, into a buffer at its current position.
+   *
+   * @param buffer buffer to copy into
+   * @return number of values copied
+   */
+  public int getPointsClassificationRank(IntBuffer buffer) {
+    return OutputBuffers.write(pointsClassificationRank, buffer);
+  }
+
+  /**
+   * Gets the IDs of the riders sorted by their total mountain points.
+   *
+   * @return rider IDs in mountain classification order
+   */
+  public int[] getMountainPointsClassificationRank() {
+    return mountainPointsClassificationRank.clone();
+  }
+
+  /**
+   * Copies the riders' IDs sorted by total mountain points, into an array.
+   *
+   * @param buffer array to copy into
+   * @param offset position in the array to copy the first value to
+   * @return number of values copied
+   */
+  public int getMountainPointsClassificationRank(int[] buffer, int offset) {
+    return OutputBuffers.write(mountainPointsClassificationRank, buffer, offset);
+  }
+
+  /**
+   * Copies the riders' IDs sorted by total mountain points, into a buffer at its current position.
+   *
+   * @param buffer buffer to copy into
+   * @return number of values copied
+   */
+  public int getMountainPointsClassificationRank(IntBuffer buffer) {
+    return OutputBuffers.write(mountainPointsClassificationRank, buffer);
+  }
+}
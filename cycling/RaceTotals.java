@@ -0,0 +1,205 @@
+package cycling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Every rider's total elapsed time, adjusted elapsed time, (sprint) points and mountain points
+ * across the stages of a race, added up in a single pass over the stages' rankings. Totals are
+ * kept in arrays indexed by a compact slot, handed out to each rider the first time they appear
+ * in the race, rather than written to the Rider objects, so the cost depends on the size of the
+ * race and totals for different races never interfere.
+ *
+ * <p>Only the rankings are read, never the stages, so the totals can be worked out without
+ * holding the race's lock from rankings taken while it was held.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class RaceTotals {
+
+  private int[] slotsByRiderId = new int[0]; /* Slot of each rider indexed by rider ID, plus one,
+                                               so 0 means the rider isn't in the race */
+
+  private int size = 0; // Number of riders in the race
+  private int[] riderIds = new int[0]; // ID of the rider in each slot
+  private long[] elapsedTimes = new long[0]; // Total elapsed time of the rider in each slot
+  private long[] adjustedTimes = new long[0]; // Total adjusted time of the rider in each slot
+  private int[] points = new int[0]; // Total points of the rider in each slot
+  private int[] mountainPoints = new int[0]; // Total mountain points of the rider in each slot
+
+  /**
+   * Constructor for the RaceTotals class. Adds up the rankings of every stage of the race,
+   * riders get their slots in order of the first stage they appear in and their position in it.
+   *
+   * @param stageRankings rankings of each stage in the race, in race order, with their points
+   *                      already worked out
+   */
+  public RaceTotals(ArrayList<StageRankings> stageRankings) {
+    for (StageRankings rankings : stageRankings) {
+      int[] stageRiderIds = rankings.getRiderIds();
+      long[] stageElapsedTimes = rankings.getElapsedTimes();
+      long[] stageAdjustedTimes = rankings.getAdjustedTimes();
+      int[] stagePoints = rankings.getPoints();
+      int[] stageMountainPoints = rankings.getMountainPoints();
+      for (int i = 0; i < stageRiderIds.length; i++) {
+        int slot = slotOf(stageRiderIds[i]);
+        elapsedTimes[slot] += stageElapsedTimes[i];
+        adjustedTimes[slot] += stageAdjustedTimes[i];
+        points[slot] += stagePoints[i];
+        mountainPoints[slot] += stageMountainPoints[i];
+      }
+    }
+  }
+
+  /**
+   * Finds the slot of a rider, giving them the next free slot if they don't have one yet.
+   *
+   * @param riderId ID of the rider
+   * @return the rider's slot
+   */
+  private int slotOf(int riderId) {
+    if (riderId >= slotsByRiderId.length) {
+      slotsByRiderId = Arrays.copyOf(slotsByRiderId,
+          Math.max(riderId + 1, slotsByRiderId.length * 2));
+    }
+    if (slotsByRiderId[riderId] != 0) {
+      return slotsByRiderId[riderId] - 1;
+    }
+    if (size == riderIds.length) {
+      int newCapacity = Math.max(8, size * 2);
+      riderIds = Arrays.copyOf(riderIds, newCapacity);
+      elapsedTimes = Arrays.copyOf(elapsedTimes, newCapacity);
+      adjustedTimes = Arrays.copyOf(adjustedTimes, newCapacity);
+      points = Arrays.copyOf(points, newCapacity);
+      mountainPoints = Arrays.copyOf(mountainPoints, newCapacity);
+    }
+    riderIds[size] = riderId;
+    slotsByRiderId[riderId] = size + 1;
+    return size++;
+  }
+
+  /**
+   * Gets the number of riders in the race.
+   *
+   * @return number of riders
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the ID of the rider in a slot.
+   *
+   * @param slot slot of the rider
+   * @return rider ID
+   */
+  public int getRiderId(int slot) {
+    return riderIds[slot];
+  }
+
+  /**
+   * Gets the total adjusted time of the rider in a slot.
+   *
+   * @param slot slot of the rider
+   * @return total adjusted time in nanoseconds
+   */
+  public long getAdjustedTime(int slot) {
+    return adjustedTimes[slot];
+  }
+
+  /**
+   * Gets the total points of the rider in a slot.
+   *
+   * @param slot slot of the rider
+   * @return total points
+   */
+  public int getPoints(int slot) {
+    return points[slot];
+  }
+
+  /**
+   * Gets the total mountain points of the rider in a slot.
+   *
+   * @param slot slot of the rider
+   * @return total mountain points
+   */
+  public int getMountainPoints(int slot) {
+    return mountainPoints[slot];
+  }
+
+  /**
+   * Gets the slots sorted by total elapsed time, quickest first.
+   *
+   * @return slots in order of total elapsed time
+   */
+  public int[] getSlotsByElapsedTime() {
+    return sortSlots(elapsedTimes);
+  }
+
+  /**
+   * Gets the slots sorted by total adjusted time, quickest first. Riders on equal times stay
+   * in slot order, i.e. the order they first appear in the race, the same as in the GC.
+   *
+   * @return slots in order of total adjusted time
+   */
+  public int[] getSlotsByAdjustedTime() {
+    return sortSlots(adjustedTimes);
+  }
+
+  /**
+   * Gets the slots sorted by total points, most points first.
+   *
+   * @return slots in order of total points
+   */
+  public int[] getSlotsByPoints() {
+    return sortSlotsDescending(points);
+  }
+
+  /**
+   * Gets the slots sorted by total mountain points, most points first.
+   *
+   * @return slots in order of total mountain points
+   */
+  public int[] getSlotsByMountainPoints() {
+    return sortSlotsDescending(mountainPoints);
+  }
+
+  /**
+   * Sorts the slots by points, highest first, riders with equal points stay in slot order.
+   *
+   * @param slotPoints points of each slot
+   * @return sorted slots
+   */
+  private int[] sortSlotsDescending(int[] slotPoints) {
+    return sortSlots(descendingKeys(slotPoints));
+  }
+
+  /**
+   * Turns points into keys that sort highest points first.
+   *
+   * @param slotPoints points of each slot
+   * @return key of each slot
+   */
+  private long[] descendingKeys(int[] slotPoints) {
+    long[] keys = new long[size];
+    for (int slot = 0; slot < size; slot++) {
+      keys[slot] = -slotPoints[slot];
+    }
+    return keys;
+  }
+
+  /**
+   * Sorts the slots by a key, riders with equal keys stay in slot order.
+   *
+   * @param keys key of each slot
+   * @return sorted slots
+   */
+  private int[] sortSlots(long[] keys) {
+    int[] order = new int[size];
+    IndexSort.identity(order, size);
+    IndexSort.sort(order, keys, new int[size], size);
+    return order;
+  }
+}
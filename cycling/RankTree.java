@@ -0,0 +1,284 @@
+package cycling;
+
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A sorted collection that can tell the position of any of its entries, i.e. an order
+ * statistics tree. It is a treap (a binary search tree kept balanced by giving every node a
+ * random priority) where each node also records the size of its subtree, so inserting,
+ * removing and finding the position of an entry all take O(log n) on average.
+ *
+ * <p>Entries are removed and ranked through the node returned when they were inserted, so
+ * their sort key may change once they are in the tree as long as their order relative to the
+ * other entries doesn't.
+ *
+ * @param <T> type of the entries
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class RankTree<T> {
+
+  private final Comparator<? super T> order; // Order the entries are kept in
+
+  private Node<T> root;
+
+  /**
+   * A single entry of the tree.
+   *
+   * @param <T> type of the entry
+   */
+  public static class Node<T> {
+    private final T value;
+    private final int priority; // Random, every node's priority is below its parent's
+    private Node<T> parent;
+    private Node<T> left;
+    private Node<T> right;
+    private int size = 1; // Number of nodes in the subtree rooted at this node
+
+    /**
+     * Constructor for the Node class.
+     *
+     * @param value the entry
+     * @param priority the node's random priority
+     */
+    private Node(T value, int priority) {
+      this.value = value;
+      this.priority = priority;
+    }
+
+    /**
+     * Gets the entry held in the node.
+     *
+     * @return the entry
+     */
+    public T getValue() {
+      return value;
+    }
+  }
+
+  /**
+   * Constructor for the RankTree class.
+   *
+   * @param order the order to keep the entries in
+   */
+  public RankTree(Comparator<? super T> order) {
+    this.order = order;
+  }
+
+  /**
+   * Gets the number of entries in the tree.
+   *
+   * @return number of entries
+   */
+  public int size() {
+    return size(root);
+  }
+
+  /**
+   * Adds an entry in its place. An entry equal to ones already in the tree goes after them.
+   *
+   * @param value the entry to add
+   * @return the node holding the entry, used to rank or remove it later
+   */
+  public Node<T> insert(T value) {
+    Node<T> node = new Node<T>(value, ThreadLocalRandom.current().nextInt());
+    if (root == null) {
+      root = node;
+      return node;
+    }
+    Node<T> current = root;
+    while (true) {
+      current.size++;
+      if (order.compare(value, current.value) < 0) {
+        if (current.left == null) {
+          current.left = node;
+          break;
+        }
+        current = current.left;
+      } else {
+        if (current.right == null) {
+          current.right = node;
+          break;
+        }
+        current = current.right;
+      }
+    }
+    node.parent = current;
+    while (node.parent != null && node.priority > node.parent.priority) {
+      rotateUp(node);
+    }
+    return node;
+  }
+
+  /**
+   * Removes an entry from the tree.
+   *
+   * @param node the node returned when the entry was added
+   */
+  public void remove(Node<T> node) {
+    // Move the node down until it has at most one child, which then takes its place
+    while (node.left != null && node.right != null) {
+      rotateUp(node.left.priority > node.right.priority ? node.left : node.right);
+    }
+    Node<T> child = node.left != null ? node.left : node.right;
+    replace(node, child);
+    for (Node<T> ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+      ancestor.size--;
+    }
+    node.parent = null;
+    node.left = null;
+    node.right = null;
+    node.size = 1;
+  }
+
+  /**
+   * Gets the position of an entry in the tree.
+   *
+   * @param node the node returned when the entry was added
+   * @return the number of entries before it, 0 for the first entry
+   */
+  public int rank(Node<T> node) {
+    int rank = size(node.left);
+    for (Node<T> current = node; current.parent != null; current = current.parent) {
+      if (current == current.parent.right) {
+        rank += size(current.parent.left) + 1;
+      }
+    }
+    return rank;
+  }
+
+  /**
+   * Gets the entry at a position in the tree.
+   *
+   * @param rank the number of entries before it
+   * @return the node holding the entry
+   */
+  public Node<T> get(int rank) {
+    assert rank >= 0 && rank < size();
+    Node<T> current = root;
+    while (true) {
+      int leftSize = size(current.left);
+      if (rank < leftSize) {
+        current = current.left;
+      } else if (rank == leftSize) {
+        return current;
+      } else {
+        rank -= leftSize + 1;
+        current = current.right;
+      }
+    }
+  }
+
+  /**
+   * Gets the first entry in the tree.
+   *
+   * @return the node holding the first entry, or null if the tree is empty
+   */
+  public Node<T> first() {
+    Node<T> current = root;
+    while (current != null && current.left != null) {
+      current = current.left;
+    }
+    return current;
+  }
+
+  /**
+   * Gets the entry after a given entry.
+   *
+   * @param node the node holding the given entry
+   * @return the node holding the next entry, or null if the given entry is the last
+   */
+  public Node<T> next(Node<T> node) {
+    if (node.right != null) {
+      Node<T> current = node.right;
+      while (current.left != null) {
+        current = current.left;
+      }
+      return current;
+    }
+    Node<T> current = node;
+    while (current.parent != null && current == current.parent.right) {
+      current = current.parent;
+    }
+    return current.parent;
+  }
+
+  /**
+   * Gets the entry before a given entry.
+   *
+   * @param node the node holding the given entry
+   * @return the node holding the previous entry, or null if the given entry is the first
+   */
+  public Node<T> previous(Node<T> node) {
+    if (node.left != null) {
+      Node<T> current = node.left;
+      while (current.right != null) {
+        current = current.right;
+      }
+      return current;
+    }
+    Node<T> current = node;
+    while (current.parent != null && current == current.parent.left) {
+      current = current.parent;
+    }
+    return current.parent;
+  }
+
+  /**
+   * Gets the number of nodes in a subtree.
+   *
+   * @param node root of the subtree, or null for an empty subtree
+   * @return number of nodes
+   */
+  private static int size(Node<?> node) {
+    return node == null ? 0 : node.size;
+  }
+
+  /**
+   * Rotates a node above its parent, keeping the entries in order.
+   *
+   * @param node the node to move up, which must have a parent
+   */
+  private void rotateUp(Node<T> node) {
+    Node<T> parent = node.parent;
+    if (node == parent.left) {
+      parent.left = node.right;
+      if (parent.left != null) {
+        parent.left.parent = parent;
+      }
+      node.right = parent;
+    } else {
+      parent.right = node.left;
+      if (parent.right != null) {
+        parent.right.parent = parent;
+      }
+      node.left = parent;
+    }
+    replace(parent, node);
+    parent.parent = node;
+    parent.size = 1 + size(parent.left) + size(parent.right);
+    node.size = 1 + size(node.left) + size(node.right);
+  }
+
+  /**
+   * Puts a node (or nothing) in another node's place under its parent.
+   *
+   * @param node the node being replaced
+   * @param replacement the node taking its place, or null
+   */
+  private void replace(Node<T> node, Node<T> replacement) {
+    Node<T> parent = node.parent;
+    if (replacement != null) {
+      replacement.parent = parent;
+    }
+    if (parent == null) {
+      root = replacement;
+    } else if (parent.left == node) {
+      parent.left = replacement;
+    } else {
+      parent.right = replacement;
+    }
+  }
+}
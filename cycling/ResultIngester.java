@@ -0,0 +1,254 @@
+package cycling;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Takes rider results from any number of threads (e.g. the handlers for each timing mat) and
+ * registers them in a portal on a single thread of its own. Submitting a result only adds it
+ * to a lock-free queue, so the submitting thread never waits for the portal, and the outcome
+ * is reported through the CompletableFuture returned for it.
+ *
+ * <p>The writer thread takes results off the queue in batches of up to 256 and registers each
+ * stage's results in the batch with one call, so the stage is looked up and its race locked
+ * once per batch rather than once per result. Results for the same stage are registered in
+ * the order they were submitted. The portal's snapshot is published once for the whole batch,
+ * as a single version, after every stage in it has been registered, rather than once per
+ * stage. The futures are only completed once it has been, with its version, so a result whose
+ * future has completed is always in the portal's latest snapshot. The futures are completed
+ * on the writer thread, so anything chained on them without the async methods runs there and
+ * should be quick.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class ResultIngester {
+
+  private static final int BATCH_SIZE = 256; // Most results taken off the queue at once
+
+  private final ConcurrentCyclingPortal portal; // Portal results are registered in
+
+  private final ConcurrentLinkedQueue<PendingResult> queue
+      = new ConcurrentLinkedQueue<PendingResult>(); // Results waiting to be registered
+
+  private final Thread writer; // Thread registering the results
+
+  private volatile boolean waiting = false; // Whether the writer is about to park or parked
+
+  private volatile boolean closed = false; // Whether close has been called
+
+  /**
+   * A submitted result waiting to be registered.
+   */
+  private static class PendingResult {
+    private final int stageId;
+    private final int riderId;
+    private final LocalTime[] checkpoints;
+    private final CompletableFuture<Long> outcome = new CompletableFuture<Long>();
+
+    /**
+     * Constructor for the PendingResult class.
+     *
+     * @param stageId ID of the stage the result is for
+     * @param riderId ID of the rider the result is for
+     * @param checkpoints the rider's checkpoint times in the stage
+     */
+    private PendingResult(int stageId, int riderId, LocalTime[] checkpoints) {
+      this.stageId = stageId;
+      this.riderId = riderId;
+      this.checkpoints = checkpoints;
+    }
+  }
+
+  /**
+   * Constructor for the ResultIngester class, starts the writer thread.
+   *
+   * @param portal the portal to register results in
+   */
+  public ResultIngester(ConcurrentCyclingPortal portal) {
+    this.portal = portal;
+    writer = new Thread(this::applyResults, "result-ingester");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Queues a rider's results in a stage to be registered, in the same format as
+   * {@link CyclingPortal#registerRiderResultsInStage(int, int, LocalTime...)}. Returns
+   * straight away, without waiting for them to be registered.
+   *
+   * @param stageId The ID of the stage the result refers to.
+   * @param riderId The ID of the rider.
+   * @param checkpoints An array of times at which the rider reached each of the segments of
+   *                    the stage, including the start time and the finish line.
+   * @return A future completed once the results are registered, with the version of the
+   *         first snapshot they are in, or completed exceptionally with the
+   *         IDNotRecognisedException, DuplicatedResultException, InvalidCheckpointsException
+   *         or InvalidStageStateException the portal threw.
+   * @throws IllegalStateException If the ingester has been closed.
+   */
+  public CompletableFuture<Long> submit(int stageId, int riderId, LocalTime... checkpoints) {
+    if (closed) {
+      throw new IllegalStateException("The ingester has been closed.");
+    }
+    PendingResult result = new PendingResult(stageId, riderId, checkpoints);
+    queue.offer(result);
+    // If close was called while the result was being queued, close may already have emptied
+    // the queue, leaving the result where nothing will take it. Whoever takes it off the
+    // queue completes it, so it is only rejected here if it is still there.
+    if (closed && queue.remove(result)) {
+      throw new IllegalStateException("The ingester has been closed.");
+    }
+    if (waiting) {
+      LockSupport.unpark(writer);
+    }
+    return result.outcome;
+  }
+
+  /**
+   * Gets the number of results submitted but not yet taken off the queue. Takes time
+   * proportional to the number of results, so is meant for monitoring rather than polling.
+   *
+   * @return number of results waiting
+   */
+  public int getBacklog() {
+    return queue.size();
+  }
+
+  /**
+   * Stops the writer thread once every result already submitted has been registered. Should
+   * be called after the threads submitting results have stopped, results submitted after it
+   * returns are rejected and any still queued are completed with an IllegalStateException.
+   *
+   * @throws InterruptedException If interrupted while waiting for the writer thread.
+   */
+  public void close() throws InterruptedException {
+    closed = true;
+    LockSupport.unpark(writer);
+    writer.join();
+    PendingResult result;
+    while ((result = queue.poll()) != null) {
+      result.outcome.completeExceptionally(
+          new IllegalStateException("The ingester was closed before the result was registered."));
+    }
+  }
+
+  /**
+   * Run by the writer thread, registers batches of results until the ingester is closed and
+   * the queue is empty.
+   */
+  private void applyResults() {
+    ArrayList<PendingResult> batch = new ArrayList<PendingResult>(BATCH_SIZE);
+    while (true) {
+      PendingResult result;
+      while (batch.size() < BATCH_SIZE && (result = queue.poll()) != null) {
+        batch.add(result);
+      }
+      if (!batch.isEmpty()) {
+        try {
+          applyBatch(batch);
+        } catch (Throwable e) {
+          // Fail every result in the batch still waiting rather than leave it waiting
+          // forever, and keep the writer thread running for the results behind it
+          for (PendingResult failed : batch) {
+            failed.outcome.completeExceptionally(e);
+          }
+        }
+        batch.clear();
+      } else if (closed) {
+        return;
+      } else {
+        waitForResults();
+      }
+    }
+  }
+
+  /**
+   * Parks the writer thread until a result is submitted or the ingester is closed. Submitting
+   * threads only unpark the writer when it has said it is waiting, and the writer checks the
+   * queue again after saying so, so a result can't be submitted without the writer noticing.
+   */
+  private void waitForResults() {
+    waiting = true;
+    if (queue.isEmpty() && !closed) {
+      LockSupport.park(this);
+    }
+    waiting = false;
+  }
+
+  /**
+   * Registers a batch of results, with one portal call for each stage in it, then publishes
+   * one snapshot for every race the batch changed and completes the futures. The sort is
+   * stable, so results for the same stage keep the order they were submitted in.
+   *
+   * @param batch the results to register
+   */
+  private void applyBatch(ArrayList<PendingResult> batch) {
+    batch.sort(Comparator.comparingInt(result -> result.stageId));
+    Exception[] errors = new Exception[batch.size()];
+    HashSet<Integer> changedRaces = new HashSet<Integer>();
+    int start = 0;
+    while (start < batch.size()) {
+      int end = start + 1;
+      while (end < batch.size() && batch.get(end).stageId == batch.get(start).stageId) {
+        end++;
+      }
+      applyStage(batch, start, end, errors, changedRaces);
+      start = end;
+    }
+
+    long version = portal.publishRaces(changedRaces);
+    for (int i = 0; i < batch.size(); i++) {
+      if (errors[i] == null) {
+        batch.get(i).outcome.complete(version);
+      } else {
+        batch.get(i).outcome.completeExceptionally(errors[i]);
+      }
+    }
+  }
+
+  /**
+   * Registers a run of results for the same stage, without publishing a snapshot. A result
+   * that can't be registered only fails itself, the whole run only fails if the stage itself
+   * is unknown or not waiting for results.
+   *
+   * @param batch the batch the results are in
+   * @param start index of the first result in the run
+   * @param end index after the last result in the run
+   * @param errors the exception each result in the batch failed with, filled in for the run
+   * @param changedRaces the IDs of races changed by the batch, added to if the run is
+   *                     registered
+   */
+  private void applyStage(ArrayList<PendingResult> batch, int start, int end,
+      Exception[] errors, HashSet<Integer> changedRaces) {
+    int[] riderIds = new int[end - start];
+    LocalTime[][] checkpoints = new LocalTime[end - start][];
+    for (int i = start; i < end; i++) {
+      riderIds[i - start] = batch.get(i).riderId;
+      checkpoints[i - start] = batch.get(i).checkpoints;
+    }
+
+    Exception[] runErrors;
+    try {
+      runErrors = portal.registerRiderResultsInStage(batch.get(start).stageId, riderIds,
+          checkpoints, changedRaces);
+    } catch (IDNotRecognisedException | InvalidStageStateException e) {
+      Arrays.fill(errors, start, end, e);
+      return;
+    } catch (RuntimeException e) {
+      // Every row is checked before it is stored, so this is a fault in the portal rather than
+      // a bad result, and which rows were stored isn't known. Fail the whole run rather than
+      // leave its futures waiting forever, and keep the writer thread running.
+      Arrays.fill(errors, start, end, e);
+      return;
+    }
+    System.arraycopy(runErrors, 0, errors, start, end - start);
+  }
+}
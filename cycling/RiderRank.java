@@ -0,0 +1,69 @@
+package cycling;
+
+/**
+ * A single rider's position in a stage or a race's general classification, along with
+ * their time and how far they are behind the leader.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class RiderRank {
+
+  private final int riderId;
+  private final int rank; // Position, 1 for the leader
+  private final long time; // Adjusted elapsed time in nanoseconds
+  private final long gap; // Time behind the leader in nanoseconds
+
+  /**
+   * Constructor for the RiderRank class.
+   *
+   * @param riderId ID of the rider
+   * @param rank the rider's position, 1 for the leader
+   * @param time the rider's adjusted elapsed time in nanoseconds
+   * @param gap the rider's time behind the leader in nanoseconds
+   */
+  public RiderRank(int riderId, int rank, long time, long gap) {
+    this.riderId = riderId;
+    this.rank = rank;
+    this.time = time;
+    this.gap = gap;
+  }
+
+  /**
+   * Gets the ID of the rider.
+   *
+   * @return rider ID
+   */
+  public int getRiderId() {
+    return riderId;
+  }
+
+  /**
+   * Gets the rider's position.
+   *
+   * @return position, 1 for the leader
+   */
+  public int getRank() {
+    return rank;
+  }
+
+  /**
+   * Gets the rider's adjusted elapsed time, the total over the race for the general
+   * classification.
+   *
+   * @return adjusted elapsed time in nanoseconds
+   */
+  public long getTime() {
+    return time;
+  }
+
+  /**
+   * Gets how far the rider is behind the leader.
+   *
+   * @return time behind the leader in nanoseconds, 0 for the leader
+   */
+  public long getGap() {
+    return gap;
+  }
+}
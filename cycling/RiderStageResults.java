@@ -1,99 +1,62 @@
 package cycling;
 
 import java.io.Serializable;
-import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
-import java.util.LinkedList;
 
 
 /**
- * Stores a single rider's results in a single stage.
+ * A single rider's results in a single stage. The results themselves are kept in the
+ * stage's StageResultStore, this object only records which slot of the store they are in.
  *
  * @author James Pilcher
  * @author Daniel Moulton
  * @version 1.0
  */
 public class RiderStageResults implements Serializable {
+  private static final long serialVersionUID = 3866483592985296848L;
+
   private Rider rider;
   private Stage stage;
-  private Long startTime;
-
-  private Long elapsedTimeForStage; // Time taken for the stage 
-  private Long adjustedTimeForStage; /* Time taken for the stage, adjusted for if a rider finishes
-                            within a second of the rider ahead */
-  private LinkedList<Long> segmentTimes 
-      = new LinkedList<Long>(); // List of rider's times in each segment
-
-  private int riderPoints = 0;
-  private int riderMountainPoints = 0;
+  private int slot; // Slot holding the rider's results in the stage's result store
 
   /**
    * Constructor for the RiderStageResults class.
    *
    * @param rider the rider the results relate to
    * @param stage the stage the results relate to
-   * @param checkpoints time at each checkpoint in the stage for the rider
+   * @param slot slot of the stage's result store the results are kept in
    */
-  public RiderStageResults(Rider rider, Stage stage, LocalTime... checkpoints) {
+  public RiderStageResults(Rider rider, Stage stage, int slot) {
     this.rider = rider;
     this.stage = stage;
-    startTime = checkpoints[0].toNanoOfDay();
-    elapsedTimeForStage 
-        = checkpoints[0].until(checkpoints[checkpoints.length - 1], ChronoUnit.NANOS);
-    for (int i = 1; i < checkpoints.length - 1; i++) {
-      segmentTimes.add(checkpoints[0].until(checkpoints[i], ChronoUnit.NANOS));
-    }
-  }
-
-  /**
-   *  Reset rider's points to 0.
-   */
-  public void resetPoints() {
-    riderPoints = 0;
-  }
-
-
-  /**
-   *  Reset rider's mountain points to 0.
-   */
-  public void resetMountainPoints() {
-    riderMountainPoints = 0;
-  }
-
-  /**
-   * Set rider's points to specified value.
-   *
-   * @param points value to set points to
-   */
-  public void setPoints(int points) {
-    riderPoints = points;
+    this.slot = slot;
   }
 
   /**
-   * Increase rider's points by specified value.
+   * Gets the slot of the stage's result store the results are kept in.
    *
-   * @param points value to increase rider's points by
+   * @return slot in the result store
    */
-  public void addPoints(int points) {
-    riderPoints += points;
+  public int getSlot() {
+    return slot;
   }
 
   /**
-   * Increase rider's mountain points by specified value.
+   * Sets the slot of the stage's result store the results are kept in, used when
+   * an earlier result is removed from the stage.
    *
-   * @param points value to increase rider's mountain points by'
+   * @param slot new slot in the result store
    */
-  public void addMountainPoints(int points) {
-    riderMountainPoints += points;
+  public void setSlot(int slot) {
+    this.slot = slot;
   }
 
   /**
-   * Gets an arraylist of all the rider's segment times.
+   * Gets the number of segment times the rider has in the stage.
    *
-   * @return arraylist of all the rider's segment times'
+   * @return number of segment times
    */
-  public LinkedList<Long> getSegmentTimes() { 
-    return segmentTimes;
+  public int getNumberOfSegmentTimes() { 
+    return stage.getResultStore().getSegmentCount();
   }
 
   /**
@@ -102,8 +65,8 @@ public class RiderStageResults implements Serializable {
    * @param index index in the array of segment times
    * @return rider's time in specified segment
    */
-  public Long getSegmentTime(int index) { 
-    return segmentTimes.get(index);
+  public long getSegmentTime(int index) { 
+    return stage.getResultStore().getSegmentTime(slot, index);
   }
 
   /**
@@ -111,8 +74,8 @@ public class RiderStageResults implements Serializable {
    *
    * @return total time of the rider in the stage
    */
-  public Long getElapsedTimeForStage() { 
-    return elapsedTimeForStage;
+  public long getElapsedTimeForStage() { 
+    return stage.getResultStore().getElapsedTime(slot);
   }
 
   /**
@@ -121,7 +84,8 @@ public class RiderStageResults implements Serializable {
    * @return rider's points
    */
   public int getRiderPoints() { 
-    return riderPoints; 
+    StageRankings rankings = stage.getRankings();
+    return rankings.getPoints()[rankings.getRank(slot)];
   }
 
   /**
@@ -130,7 +94,8 @@ public class RiderStageResults implements Serializable {
    * @return rider's mountain points
    */
   public int getRiderMountainPoints() { 
-    return riderMountainPoints;
+    StageRankings rankings = stage.getRankings();
+    return rankings.getMountainPoints()[rankings.getRank(slot)];
   }
   
 
@@ -157,8 +122,8 @@ public class RiderStageResults implements Serializable {
    *
    * @return stage's start time
    */
-  public Long getStartTime() {
-    return startTime; 
+  public long getStartTime() {
+    return stage.getResultStore().getStartTime(slot);
   }
 
   /**
@@ -167,8 +132,8 @@ public class RiderStageResults implements Serializable {
    *
    * @return Rider's adjusted time
    */
-  public Long getAdjustedTimeForStage() { 
-    return adjustedTimeForStage; 
+  public long getAdjustedTimeForStage() { 
+    return stage.getResultStore().getAdjustedTime(slot);
   }
 
   /**
@@ -177,7 +142,7 @@ public class RiderStageResults implements Serializable {
    *
    * @param adjustedTimeForStage the new adjusted time for the stage
    */
-  public void setAdjustedTimeForStage(Long adjustedTimeForStage) { 
-    this.adjustedTimeForStage = adjustedTimeForStage;
+  public void setAdjustedTimeForStage(long adjustedTimeForStage) { 
+    stage.getResultStore().setAdjustedTime(slot, adjustedTimeForStage);
   }
 }
@@ -9,10 +9,13 @@ import java.io.Serializable;
  * @author Daniel Moulton
  */
 public class Segment extends IdHaver implements Serializable {
+  private static final long serialVersionUID = -5100824702468073527L;
+
   private int id;
   private int stageId;
   private Double location;
   private SegmentType type;
+  private int index; // Position of the segment within its stage, ordered by location
   
   private static int numberOfSegments = 0;
 
@@ -40,6 +43,25 @@ public class Segment extends IdHaver implements Serializable {
     return location;
   }
 
+  /**
+   * Gets the position of the segment within its stage, the segment nearest the start is 0.
+   *
+   * @return segment's index within its stage
+   */
+  public int getIndex() { 
+    return index;
+  }
+
+  /**
+   * Sets the position of the segment within its stage, kept up to date by the stage as
+   * segments are added and removed.
+   *
+   * @param index segment's index within its stage
+   */
+  public void setIndex(int index) { 
+    this.index = index;
+  }
+
   /**
    * Gets the type of the segment i.e. Sprint.
    *
@@ -64,4 +86,14 @@ public class Segment extends IdHaver implements Serializable {
   public static void resetIdCounter() {
     numberOfSegments = 0;
   }
+
+  /**
+   * Sets the number of segments, used when loading the cycling portal so new IDs don't clash
+   * with the loaded ones.
+   *
+   * @param highestId the highest segment ID already in use
+   */
+  public static void resetIdCounter(int highestId) {
+    numberOfSegments = highestId;
+  }
 }
@@ -0,0 +1,100 @@
+package cycling;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The most recent snapshots published by a ConcurrentCyclingPortal, so the classifications
+ * can be asked for as they were at an earlier version or time, e.g. before a result was
+ * corrected. A fixed number of snapshots are kept, the oldest being dropped as new ones are
+ * recorded.
+ *
+ * <p>Snapshots share everything that didn't change between them, so each snapshot kept only
+ * costs what its change touched: the few map nodes on the paths to the race and stages that
+ * changed, plus the new standings of the race and the new rankings of its changed stage, which
+ * are in proportion to the number of riders in the race rather than the size of the portal.
+ *
+ * <p>Snapshots are kept in a ring, the snapshot with version v in slot v % length, which is
+ * updated with compare-and-set, so recording and looking up snapshots never wait for each
+ * other.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class SnapshotHistory {
+
+  private final AtomicReferenceArray<PortalSnapshot> snapshots; // Version v in slot v % length
+
+  /**
+   * Constructor for the SnapshotHistory class.
+   *
+   * @param length number of snapshots to keep
+   */
+  public SnapshotHistory(int length) {
+    if (length < 1) {
+      throw new IllegalArgumentException("A history must keep at least one snapshot.");
+    }
+    snapshots = new AtomicReferenceArray<PortalSnapshot>(length);
+  }
+
+  /**
+   * Gets the number of snapshots kept.
+   *
+   * @return number of snapshots kept
+   */
+  public int getLength() {
+    return snapshots.length();
+  }
+
+  /**
+   * Records a newly published snapshot, dropping the one kept length versions before it.
+   * Snapshots may be recorded slightly out of order when races are changed at once, so a
+   * snapshot never replaces a newer one.
+   *
+   * @param snapshot the snapshot to keep
+   */
+  public void record(PortalSnapshot snapshot) {
+    int slot = (int) (snapshot.getVersion() % snapshots.length());
+    PortalSnapshot current;
+    do {
+      current = snapshots.get(slot);
+      if (current != null && current.getVersion() >= snapshot.getVersion()) {
+        return;
+      }
+    } while (!snapshots.compareAndSet(slot, current, snapshot));
+  }
+
+  /**
+   * Gets the snapshot with a given version.
+   *
+   * @param version version of the snapshot
+   * @return the snapshot, or null if it has been dropped or hasn't been recorded
+   */
+  public PortalSnapshot get(long version) {
+    if (version < 0) {
+      return null;
+    }
+    PortalSnapshot snapshot = snapshots.get((int) (version % snapshots.length()));
+    return snapshot != null && snapshot.getVersion() == version ? snapshot : null;
+  }
+
+  /**
+   * Gets the snapshot that was the latest at a given time, i.e. the newest snapshot made at or
+   * before it. Takes time proportional to the length of the history.
+   *
+   * @param time the time of interest
+   * @return the snapshot, or null if every snapshot kept was made after the time
+   */
+  public PortalSnapshot getAt(Instant time) {
+    PortalSnapshot latest = null;
+    for (int slot = 0; slot < snapshots.length(); slot++) {
+      PortalSnapshot snapshot = snapshots.get(slot);
+      if (snapshot != null && !snapshot.getTime().isAfter(time)
+          && (latest == null || snapshot.getVersion() > latest.getVersion())) {
+        latest = snapshot;
+      }
+    }
+    return latest;
+  }
+}
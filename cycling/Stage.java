@@ -2,7 +2,9 @@ package cycling;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.util.LinkedList;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
 
 /**
  * Represents a stage within a race.
@@ -11,6 +13,8 @@ import java.util.LinkedList;
  * @author Daniel Moulton
  */
 public class Stage extends IdHaver implements Serializable {
+  private static final long serialVersionUID = 461312225726642090L;
+
   private int id;
   private int raceId; // ID of race the stage belongs to
   private StageType type;
@@ -20,11 +24,24 @@ public class Stage extends IdHaver implements Serializable {
   private Double length;
   private LocalDateTime startTime;
 
-  private LinkedList<Segment> segments = new LinkedList<Segment>(); /* Linked list of segments 
-  within this stage*/
+  private ArrayList<Segment> segments = new ArrayList<Segment>(); /* List of segments 
+  within this stage, kept sorted by location*/
+
+  private ArrayList<RiderStageResults> riderResultsList = 
+      new ArrayList<RiderStageResults>(); // List of rider results in stage, indexed by slot
+
+  private StageResultStore resultStore = new StageResultStore(); // Rider results in stage
+
+  private int version = 0; // Bumped every time the results or segments change
 
-  private LinkedList<RiderStageResults> riderResultsList = 
-      new LinkedList<RiderStageResults>(); // Linked list of rider results in stage
+  private transient StageRankings rankings; // Rankings for the current version, if worked out
+
+  private transient RankTree<RiderStageResults> finishingOrder; /* Results sorted by elapsed
+                            time, kept up to date as results are added and removed */
+  private transient ArrayList<RankTree.Node<RiderStageResults>>
+      finishingNodes; // Node of each result in finishingOrder, indexed by slot
+  private transient StageChangeLog changeLog; /* Changes to riders' adjusted times, null until
+                            the results first change */
 
   private static int numberOfStages = 0; // Number of stages in portal.
 
@@ -52,21 +69,337 @@ public class Stage extends IdHaver implements Serializable {
   }
 
   /**
-   * Adds rider's results in stage to riderResultsList.
+   * Stores a rider's results in the stage.
    *
    * @param rider Rider object of the corresponding rider 
+   * @param checkpoints time at each checkpoint in the stage for the rider
+   * @return the rider's results in the stage
+   */
+  public RiderStageResults addRiderResultToStage(Rider rider, LocalTime... checkpoints) { 
+    RankTree<RiderStageResults> order = getFinishingOrder();
+    int slot = resultStore.add(rider.getId(), checkpoints);
+    RiderStageResults riderStageResults = new RiderStageResults(rider, this, slot);
+    riderResultsList.add(riderStageResults);
+    RankTree.Node<RiderStageResults> node = order.insert(riderStageResults);
+    finishingNodes.add(node);
+    long adjustedTime = adjustedTimeBehind(order.previous(node), node);
+    resultStore.setAdjustedTime(slot, adjustedTime);
+    startChange().record(riderStageResults, adjustedTime, 1, version + 1);
+    adjustTimesFrom(order.next(node));
+    version++;
+    return riderStageResults;
+  }
+
+  /**
+   * Finds a rider's results in the stage.
+   *
+   * @param riderId ID of the rider
+   * @return the rider's results, or null if the rider has no result in the stage
+   */
+  public RiderStageResults getRiderResult(int riderId) {
+    int slot = resultStore.getSlot(riderId);
+    return slot < 0 ? null : riderResultsList.get(slot);
+  }
+
+  /**
+   * Makes room for a number of further results, used before registering a batch of results.
+   *
+   * @param count number of results about to be added
+   */
+  public void reserveRiderResults(int count) {
+    resultStore.ensureCapacity(resultStore.size() + count);
+    riderResultsList.ensureCapacity(riderResultsList.size() + count);
+  }
+
+  /**
+   * Removes a rider's results from the stage.
+   *
+   * @param riderStageResults the results to be removed
+   */
+  public void removeRiderResult(RiderStageResults riderStageResults) {
+    int slot = riderStageResults.getSlot();
+    assert riderResultsList.get(slot) == riderStageResults;
+    RankTree<RiderStageResults> order = getFinishingOrder();
+    RankTree.Node<RiderStageResults> node = finishingNodes.remove(slot);
+    RankTree.Node<RiderStageResults> behind = order.next(node);
+    order.remove(node);
+    startChange().record(riderStageResults, -resultStore.getAdjustedTime(slot), -1, version + 1);
+    resultStore.remove(slot);
+    riderResultsList.remove(slot);
+    for (int i = slot; i < riderResultsList.size(); i++) {
+      riderResultsList.get(i).setSlot(i);
+    }
+    adjustTimesFrom(behind);
+    version++;
+  }
+
+  /**
+   * Removes several riders' results from the stage at once, e.g. when the stage or a team is
+   * deleted. The results are removed in one pass rather than one at a time, which would move
+   * every later result along for each one. The remaining results are then sorted into
+   * finishing order again, which also brings their adjusted times up to date.
+   *
+   * @param removedResults the results to be removed, all of them from this stage
+   */
+  public void removeRiderResults(Collection<RiderStageResults> removedResults) {
+    if (removedResults.isEmpty()) {
+      return;
+    }
+    boolean[] removed = new boolean[riderResultsList.size()];
+    for (RiderStageResults riderStageResults : removedResults) {
+      assert riderResultsList.get(riderStageResults.getSlot()) == riderStageResults;
+      removed[riderStageResults.getSlot()] = true;
+    }
+    resultStore.removeAll(removed);
+    int kept = 0;
+    for (int slot = 0; slot < removed.length; slot++) {
+      if (!removed[slot]) {
+        RiderStageResults riderStageResults = riderResultsList.get(slot);
+        riderStageResults.setSlot(kept);
+        riderResultsList.set(kept++, riderStageResults);
+      }
+    }
+    riderResultsList.subList(kept, removed.length).clear();
+    synchronized (this) {
+      finishingOrder = null;
+      finishingNodes = null;
+      getFinishingOrder();
+    }
+    version++;
+    // The riders behind every removed result may have moved, so the log starts again
+    startChange().restart(version);
+  }
+
+  /**
+   * Gets the rankings of the riders in the stage. The rankings are only worked out again
+   * if the results have changed since they were last asked for.
+   *
+   * @return rankings for the current results
+   */
+  public synchronized StageRankings getRankings() {
+    if (rankings == null || rankings.getVersion() != version) {
+      rankings = new StageRankings(this, version);
+    }
+    return rankings;
+  }
+
+  /**
+   * Gets the first riders in finishing order, reading them off the front of the finishing
+   * order rather than ranking the whole stage.
+   *
+   * @param k maximum number of riders to get
+   * @return IDs of up to k riders, the stage winner first
+   */
+  public synchronized int[] getTopRiders(int k) {
+    RankTree<RiderStageResults> order = getFinishingOrder();
+    int[] topRiders = new int[Math.min(k, order.size())];
+    RankTree.Node<RiderStageResults> node = order.first();
+    for (int i = 0; i < topRiders.length; i++) {
+      topRiders[i] = resultStore.getRiderId(node.getValue().getSlot());
+      node = order.next(node);
+    }
+    return topRiders;
+  }
+
+  /**
+   * Gets a single rider's position in the stage and how far behind the winner they are,
+   * without ranking the whole stage.
+   *
+   * @param riderId ID of the rider
+   * @return the rider's rank, or null if the rider has no result in the stage
+   */
+  public synchronized RiderRank getRiderRank(int riderId) {
+    int slot = resultStore.getSlot(riderId);
+    if (slot < 0) {
+      return null;
+    }
+    long adjustedTime = resultStore.getAdjustedTime(slot);
+    return new RiderRank(riderId, getFinishingPosition(slot) + 1, adjustedTime,
+        adjustedTime - elapsedTime(getFinishingOrder().first()));
+  }
+
+  /**
+   * Gets the position in finishing order of the rider in a slot, without ranking the whole
+   * stage if its rankings are out of date.
+   *
+   * @param slot slot of the stage's result store
+   * @return position, 0 for the stage winner
+   */
+  public synchronized int getFinishingPosition(int slot) {
+    StageRankings current = getCurrentRankings();
+    if (current != null) {
+      return current.getRank(slot);
+    }
+    return getFinishingOrder().rank(finishingNodes.get(slot));
+  }
+
+  /**
+   * Gets the results sorted by elapsed time, then by the order they were registered in.
+   * The results are sorted once, e.g. after the stage is loaded from a file, and from then
+   * on kept sorted as results are added and removed. The tree is the stage's own and must
+   * not be modified.
+   *
+   * @return the results in finishing order
+   */
+  public synchronized RankTree<RiderStageResults> getFinishingOrder() {
+    if (finishingOrder == null) {
+      finishingOrder = new RankTree<RiderStageResults>(this::compareFinishingOrder);
+      finishingNodes = new ArrayList<RankTree.Node<RiderStageResults>>(riderResultsList.size());
+      for (RiderStageResults riderStageResults : riderResultsList) {
+        finishingNodes.add(finishingOrder.insert(riderStageResults));
+      }
+      RankTree.Node<RiderStageResults> ahead = null;
+      for (RankTree.Node<RiderStageResults> node = finishingOrder.first(); node != null;
+          node = finishingOrder.next(node)) {
+        resultStore.setAdjustedTime(node.getValue().getSlot(), adjustedTimeBehind(ahead, node));
+        ahead = node;
+      }
+    }
+    return finishingOrder;
+  }
+
+  /**
+   * Works out the adjusted times again from a rider down the finishing order, after the rider
+   * ahead of them has changed. Only the riders whose group has changed are looked at: it stops
+   * at the first rider whose adjusted time stays the same, as nobody behind them can change.
+   * Each change is recorded in the change log as part of the change being made.
+   *
+   * @param node the first rider whose adjusted time may have changed, or null if none
    */
-  public void addRiderResultToStage(RiderStageResults rider) { 
-    riderResultsList.add(rider);
+  private void adjustTimesFrom(RankTree.Node<RiderStageResults> node) {
+    RankTree.Node<RiderStageResults> ahead = node == null ? null : finishingOrder.previous(node);
+    while (node != null) {
+      int slot = node.getValue().getSlot();
+      long adjustedTime = adjustedTimeBehind(ahead, node);
+      if (adjustedTime == resultStore.getAdjustedTime(slot)) {
+        return;
+      }
+      changeLog.record(node.getValue(), adjustedTime - resultStore.getAdjustedTime(slot), 0,
+          version + 1);
+      resultStore.setAdjustedTime(slot, adjustedTime);
+      ahead = node;
+      node = finishingOrder.next(node);
+    }
   }
 
   /**
-   * Adds a segment to the stage (adds segment object to stage's list of segments).
+   * Gets the change log ready for a change to the results. The log is started the first time
+   * the results change, and started again once it holds more entries than there are results,
+   * as by then looking at the whole stage is cheaper than replaying it.
+   *
+   * @return the change log
+   */
+  private StageChangeLog startChange() {
+    if (changeLog == null) {
+      changeLog = new StageChangeLog(version);
+    } else if (changeLog.size() > Math.max(64, resultStore.size())) {
+      changeLog.restart(version);
+    }
+    return changeLog;
+  }
+
+  /**
+   * Gets the log of changes to the riders' adjusted times. Once every change in it has been
+   * taken in, discardChanges can be called to keep it short.
+   *
+   * @return the change log, or null if the results haven't changed since the stage was
+   *         created or loaded
+   */
+  public StageChangeLog getChangeLog() {
+    return changeLog;
+  }
+
+  /**
+   * Empties the change log, after every change up to the current version has been taken in.
+   */
+  public void discardChanges() {
+    if (changeLog != null) {
+      changeLog.restart(version);
+    }
+  }
+
+  /**
+   * Works out a rider's adjusted time from the rider directly ahead of them. If a rider
+   * finishes within one second of the rider ahead, they get the same time.
+   *
+   * @param ahead the rider directly ahead, whose adjusted time is up to date, or null if none
+   * @param node the rider
+   * @return the rider's adjusted time in nanoseconds
+   */
+  private long adjustedTimeBehind(RankTree.Node<RiderStageResults> ahead,
+      RankTree.Node<RiderStageResults> node) {
+    if (ahead != null && elapsedTime(node) - elapsedTime(ahead) < 1000_000_000L) {
+      return resultStore.getAdjustedTime(ahead.getValue().getSlot());
+    }
+    return elapsedTime(node);
+  }
+
+  /**
+   * Compares two results by elapsed time, then by the order they were registered in.
+   *
+   * @param a the first results
+   * @param b the second results
+   * @return negative if a finished ahead of b, positive if b finished ahead of a
+   */
+  public int compareFinishingOrder(RiderStageResults a, RiderStageResults b) {
+    int byTime = Long.compare(resultStore.getElapsedTime(a.getSlot()),
+        resultStore.getElapsedTime(b.getSlot()));
+    return byTime != 0 ? byTime : Integer.compare(a.getSlot(), b.getSlot());
+  }
+
+  /**
+   * Gets the elapsed time of the results held in a node of the finishing order.
+   *
+   * @param node the node
+   * @return elapsed time in nanoseconds
+   */
+  private long elapsedTime(RankTree.Node<RiderStageResults> node) {
+    return resultStore.getElapsedTime(node.getValue().getSlot());
+  }
+
+  /**
+   * Gets the rankings of the riders in the stage only if they have already been worked out
+   * for the current results, without working them out.
+   *
+   * @return rankings for the current results, or null if they haven't been worked out
+   */
+  public synchronized StageRankings getCurrentRankings() {
+    if (rankings == null || rankings.getVersion() != version) {
+      return null;
+    }
+    return rankings;
+  }
+
+  /**
+   * Gets the version of the stage's results, which changes every time a result or segment
+   * is added or removed.
+   *
+   * @return results version
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Adds a segment to the stage (adds segment object to stage's list of segments), in
+   * its place by location. Segments at the same location keep the order they were added in.
    *
    * @param segment Segment object to be added.
    */
   public void addSegment(Segment segment) { 
-    segments.add(segment);
+    int low = 0;
+    int high = segments.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (segments.get(middle).getLocation() <= segment.getLocation()) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    segments.add(low, segment);
+    renumberSegments(low);
+    version++;
   }
 
 
@@ -76,7 +409,23 @@ public class Stage extends IdHaver implements Serializable {
    * @param segment Segment object to be removed.
    */
   public void removeSegment(Segment segment) { 
-    segments.remove(segment);
+    int index = segment.getIndex();
+    if (index < segments.size() && segments.get(index) == segment) {
+      segments.remove(index);
+      renumberSegments(index);
+      version++;
+    }
+  }
+
+  /**
+   * Updates the cached index of every segment from a given position onwards.
+   *
+   * @param from position of the first segment whose index may have changed
+   */
+  private void renumberSegments(int from) {
+    for (int i = from; i < segments.size(); i++) {
+      segments.get(i).setIndex(i);
+    }
   }
 
   /**
@@ -84,17 +433,16 @@ public class Stage extends IdHaver implements Serializable {
    */
   public void deleteSegments() { 
     segments.clear();
+    version++;
   }
 
   /**
-   * Sorts the list of segments by their position within the stage and returns the sorted list.
+   * Gets the list of segments, which is kept sorted by their position within the stage.
+   * The list is the stage's own and must not be modified.
    *
    * @return List of segments ordered by their location/poistion in the stage.
    */
-  public LinkedList<Segment> getSegments() { 
-    segments.sort((o1, o2)
-        -> o1.getLocation().compareTo(
-        o2.getLocation()));
+  public ArrayList<Segment> getSegments() { 
     return segments;
   }
 
@@ -162,14 +510,24 @@ public class Stage extends IdHaver implements Serializable {
   }
 
   /**
-   * Gets list of riders results in this stage.
+   * Gets list of riders results in this stage, the result at index i is stored in slot i
+   * of the result store. The list must not be reordered.
    *
    * @return riders results in this stage.
    */
-  public LinkedList<RiderStageResults> getRiderResultsList() { 
+  public ArrayList<RiderStageResults> getRiderResultsList() { 
     return riderResultsList; 
   }
 
+  /**
+   * Gets the store holding every rider's results in this stage.
+   *
+   * @return the stage's result store
+   */
+  public StageResultStore getResultStore() { 
+    return resultStore; 
+  }
+
   /**
    * Concludes the stage preparation.
    */
@@ -183,4 +541,14 @@ public class Stage extends IdHaver implements Serializable {
   public static void resetIdCounter() {
     numberOfStages = 0;
   }
+
+  /**
+   * Sets the number of stages, used when loading the cycling portal so new IDs don't clash
+   * with the loaded ones.
+   *
+   * @param highestId the highest stage ID already in use
+   */
+  public static void resetIdCounter(int highestId) {
+    numberOfStages = highestId;
+  }
 }
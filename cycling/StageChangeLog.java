@@ -0,0 +1,144 @@
+package cycling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The changes made to a stage's results since some version, one entry per rider whose
+ * adjusted time changed: the result itself when it is added or removed, and every rider behind
+ * it whose one-second group changed as a result. The general classification replays these
+ * rather than comparing the whole stage, so one new result costs it only the riders it moved.
+ *
+ * <p>The log only covers the versions after the one it starts from. Changes it can't describe
+ * one rider at a time, e.g. deleting many results at once, clear it and start it again from
+ * the version they make, so whoever reads it knows to look at the whole stage instead.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class StageChangeLog {
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private int startVersion; // The log holds every change made after this version
+  private int size = 0; // Number of entries
+
+  private ArrayList<RiderStageResults> results
+      = new ArrayList<RiderStageResults>(); // Results whose adjusted times changed, in order
+  private long[] timeChanges = new long[INITIAL_CAPACITY]; // Change in each adjusted time
+  private int[] stageChanges = new int[INITIAL_CAPACITY]; /* 1 if the result was added,
+                           -1 if it was removed, 0 if only its adjusted time changed */
+  private int[] versions = new int[INITIAL_CAPACITY]; // Version each change made
+
+  /**
+   * Constructor for the StageChangeLog class.
+   *
+   * @param startVersion the version of the stage's results the log starts from
+   */
+  public StageChangeLog(int startVersion) {
+    this.startVersion = startVersion;
+  }
+
+  /**
+   * Records a change to one rider's adjusted time.
+   *
+   * @param riderStageResults the rider's results
+   * @param timeChange change in the rider's adjusted time, in nanoseconds
+   * @param stageChange 1 if the result was added, -1 if it was removed, 0 otherwise
+   * @param version the version of the stage's results the change makes
+   */
+  public void record(RiderStageResults riderStageResults, long timeChange, int stageChange,
+      int version) {
+    if (size == timeChanges.length) {
+      timeChanges = Arrays.copyOf(timeChanges, size * 2);
+      stageChanges = Arrays.copyOf(stageChanges, size * 2);
+      versions = Arrays.copyOf(versions, size * 2);
+    }
+    results.add(riderStageResults);
+    timeChanges[size] = timeChange;
+    stageChanges[size] = stageChange;
+    versions[size] = version;
+    size++;
+  }
+
+  /**
+   * Empties the log and starts it again from a version.
+   *
+   * @param version the version of the stage's results the log now starts from
+   */
+  public void restart(int version) {
+    results.clear();
+    size = 0;
+    startVersion = version;
+  }
+
+  /**
+   * Checks whether the log holds every change made after a version.
+   *
+   * @param version the version
+   * @return true if the changes since the version can be replayed from the log
+   */
+  public boolean covers(int version) {
+    return version >= startVersion;
+  }
+
+  /**
+   * Finds the first entry made after a version.
+   *
+   * @param version a version the log covers
+   * @return index of the first entry made after the version, size() if none
+   */
+  public int firstAfter(int version) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (versions[middle] <= version) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets the number of entries in the log.
+   *
+   * @return number of entries
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the results whose adjusted time an entry changed.
+   *
+   * @param entry index of the entry
+   * @return the results
+   */
+  public RiderStageResults getResults(int entry) {
+    return results.get(entry);
+  }
+
+  /**
+   * Gets how much an entry changed the rider's adjusted time by.
+   *
+   * @param entry index of the entry
+   * @return change in adjusted time, in nanoseconds
+   */
+  public long getTimeChange(int entry) {
+    return timeChanges[entry];
+  }
+
+  /**
+   * Gets whether an entry added or removed the rider's result.
+   *
+   * @param entry index of the entry
+   * @return 1 if the result was added, -1 if it was removed, 0 otherwise
+   */
+  public int getStageChange(int entry) {
+    return stageChanges[entry];
+  }
+}
@@ -0,0 +1,83 @@
+package cycling;
+
+import java.util.Arrays;
+
+/**
+ * The groups (bunches) riders finished a stage in. A group is a run of riders in finishing
+ * order where each rider finished within one second of the rider ahead, i.e. the riders who
+ * share an adjusted elapsed time.
+ *
+ * <p>Every getter returns a copy, so callers are free to modify what they are given.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class StageGroups {
+
+  private final int[] starts; // Position in finishing order of the first rider in each group
+  private final int[] sizes; // Number of riders in each group
+  private final long[] gaps; // Time each group finished behind the first, in nanoseconds
+
+  /**
+   * Constructor for the StageGroups class. Splits the riders into groups in one pass over
+   * their adjusted times, a new group starts wherever the adjusted time changes.
+   *
+   * @param adjustedTimes the riders' adjusted elapsed times in finishing order
+   */
+  public StageGroups(long[] adjustedTimes) {
+    int[] groupStarts = new int[adjustedTimes.length];
+    int groupCount = 0;
+    for (int i = 0; i < adjustedTimes.length; i++) {
+      if (i == 0 || adjustedTimes[i] != adjustedTimes[i - 1]) {
+        groupStarts[groupCount++] = i;
+      }
+    }
+
+    starts = Arrays.copyOf(groupStarts, groupCount);
+    sizes = new int[groupCount];
+    gaps = new long[groupCount];
+    for (int group = 0; group < groupCount; group++) {
+      int end = group + 1 < groupCount ? starts[group + 1] : adjustedTimes.length;
+      sizes[group] = end - starts[group];
+      gaps[group] = adjustedTimes[starts[group]] - adjustedTimes[0];
+    }
+  }
+
+  /**
+   * Gets the number of groups.
+   *
+   * @return number of groups, 0 if there are no results for the stage
+   */
+  public int getNumberOfGroups() {
+    return starts.length;
+  }
+
+  /**
+   * Gets where each group starts in the stage's finishing order, i.e. the position of each
+   * group's first rider in the list returned by getRidersRankInStage.
+   *
+   * @return position of the first rider of each group, 0 for the first group
+   */
+  public int[] getGroupStarts() {
+    return starts.clone();
+  }
+
+  /**
+   * Gets the number of riders in each group.
+   *
+   * @return size of each group, in finishing order
+   */
+  public int[] getGroupSizes() {
+    return sizes.clone();
+  }
+
+  /**
+   * Gets how far each group finished behind the first group.
+   *
+   * @return gap to the leading group in nanoseconds, 0 for the first group
+   */
+  public long[] getGroupGaps() {
+    return gaps.clone();
+  }
+}
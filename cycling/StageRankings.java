@@ -0,0 +1,216 @@
+package cycling;
+
+import java.time.LocalTime;
+
+/**
+ * The rankings of the riders in a stage, worked out for one version of the stage's results.
+ * The order, rider IDs, elapsed and adjusted times are copied out of the stage, which keeps
+ * them up to date as results come in, on creation. Points, and the adjusted times as
+ * LocalTimes, are only worked out the first time they are asked for, so a time LocalTime can't
+ * hold (e.g. a rider finishing after midnight) doesn't stop the stage being ranked. Stage keeps
+ * hold of its rankings until its results change, so repeated reads don't sort or score the
+ * stage again.
+ *
+ * <p>Arrays returned are the rankings' own and must not be modified. Points are worked out
+ * from the stage's result store into arrays of the rankings' own, without writing to the
+ * stage or taking any lock, so rankings can be read by several threads at once as long as the
+ * results aren't changing. Once they have been worked out points never look at the stage
+ * again, so rankings whose points have been read can be kept and read after the stage has
+ * moved on, e.g. in a PortalSnapshot.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class StageRankings {
+
+  private final Stage stage;
+  private final int version; // Version of the stage's results these rankings are for
+
+  private final int[] order; // Slots of the stage's result store sorted by elapsed time
+  private final int[] ranks; // Position in finishing order of the rider in each slot
+  private final int[] riderIds; // Rider IDs in finishing order
+  private final long[] elapsedTimes; // Elapsed times in finishing order
+  private final long[] adjustedTimes; // Adjusted elapsed times in finishing order
+  private volatile LocalTime[] adjustedLocalTimes; // As LocalTimes, null until first asked for
+
+  private volatile int[] points; // Points in finishing order, null until first asked for
+  private volatile int[] mountainPoints; // Mountain points in order, null until first asked for
+  private StageGroups groups; // Groups the riders finished in, null until first asked for
+
+  /**
+   * Constructor for the StageRankings class. Reads the riders in finishing order, along with
+   * their elapsed and adjusted times, from the stage.
+   *
+   * @param stage the stage to rank
+   * @param version the version of the stage's results being ranked
+   */
+  public StageRankings(Stage stage, int version) {
+    this.stage = stage;
+    this.version = version;
+    StageResultStore results = stage.getResultStore();
+    int numRiders = results.size();
+
+    order = new int[numRiders];
+    RankTree<RiderStageResults> finishingOrder = stage.getFinishingOrder();
+    int position = 0;
+    for (RankTree.Node<RiderStageResults> node = finishingOrder.first(); node != null;
+        node = finishingOrder.next(node)) {
+      order[position++] = node.getValue().getSlot();
+    }
+
+    ranks = new int[numRiders];
+    riderIds = new int[numRiders];
+    elapsedTimes = new long[numRiders];
+    adjustedTimes = new long[numRiders];
+    for (int i = 0; i < numRiders; i++) {
+      ranks[order[i]] = i;
+      riderIds[i] = results.getRiderId(order[i]);
+      elapsedTimes[i] = results.getElapsedTime(order[i]);
+      adjustedTimes[i] = results.getAdjustedTime(order[i]);
+    }
+  }
+
+  /**
+   * Gets the version of the stage's results these rankings are for.
+   *
+   * @return results version
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Gets the ID of the stage these rankings are for.
+   *
+   * @return stage ID
+   */
+  public int getStageId() {
+    return stage.getId();
+  }
+
+  /**
+   * Gets the slots of the stage's result store in finishing order.
+   *
+   * @return slots sorted by elapsed time
+   */
+  public int[] getOrder() {
+    return order;
+  }
+
+  /**
+   * Gets the position in finishing order of the rider in a slot.
+   *
+   * @param slot slot of the stage's result store
+   * @return position, 0 for the stage winner
+   */
+  public int getRank(int slot) {
+    return ranks[slot];
+  }
+
+  /**
+   * Gets the IDs of the riders in finishing order.
+   *
+   * @return rider IDs sorted by elapsed time
+   */
+  public int[] getRiderIds() {
+    return riderIds;
+  }
+
+  /**
+   * Gets the elapsed times in finishing order.
+   *
+   * @return elapsed times in nanoseconds
+   */
+  public long[] getElapsedTimes() {
+    return elapsedTimes;
+  }
+
+  /**
+   * Gets the adjusted elapsed times in finishing order.
+   *
+   * @return adjusted times in nanoseconds
+   */
+  public long[] getAdjustedTimes() {
+    return adjustedTimes;
+  }
+
+  /**
+   * Gets the adjusted elapsed times in finishing order as LocalTimes, converting them the
+   * first time they are asked for. The adjusted times never change, so two threads converting
+   * them at once get equal arrays and no lock is needed.
+   *
+   * @return adjusted times
+   * @throws java.time.DateTimeException If a time is negative or 24 hours or more.
+   */
+  public LocalTime[] getAdjustedLocalTimes() {
+    LocalTime[] localTimes = adjustedLocalTimes;
+    if (localTimes == null) {
+      localTimes = new LocalTime[adjustedTimes.length];
+      for (int i = 0; i < adjustedTimes.length; i++) {
+        localTimes[i] = StageResultStore.nanoToLocalTime(adjustedTimes[i]);
+      }
+      adjustedLocalTimes = localTimes;
+    }
+    return localTimes;
+  }
+
+  /**
+   * Gets the groups the riders finished in, splitting them up the first time they are
+   * asked for.
+   *
+   * @return the stage's groups
+   */
+  public synchronized StageGroups getGroups() {
+    if (groups == null) {
+      groups = new StageGroups(adjustedTimes);
+    }
+    return groups;
+  }
+
+  /**
+   * Gets the riders' points in finishing order, working them out if they haven't been yet.
+   * Two threads working them out at once get equal arrays, so no lock is needed.
+   *
+   * @return points sorted by elapsed time
+   */
+  public int[] getPoints() {
+    int[] awarded = points;
+    if (awarded == null) {
+      assert stage.getVersion() == version : "the stage's results have changed";
+      awarded = inFinishingOrder(PointsEngine.pointsInStage(stage, order));
+      points = awarded;
+    }
+    return awarded;
+  }
+
+  /**
+   * Gets the riders' mountain points in finishing order, working them out if they haven't
+   * been yet. Two threads working them out at once get equal arrays, so no lock is needed.
+   *
+   * @return mountain points sorted by elapsed time
+   */
+  public int[] getMountainPoints() {
+    int[] awarded = mountainPoints;
+    if (awarded == null) {
+      assert stage.getVersion() == version : "the stage's results have changed";
+      awarded = inFinishingOrder(PointsEngine.mountainPointsInStage(stage, order));
+      mountainPoints = awarded;
+    }
+    return awarded;
+  }
+
+  /**
+   * Puts points worked out for each slot of the stage's result store into finishing order.
+   *
+   * @param pointsBySlot points of each rider, indexed by slot
+   * @return points sorted by elapsed time
+   */
+  private int[] inFinishingOrder(int[] pointsBySlot) {
+    int[] sorted = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sorted[i] = pointsBySlot[order[i]];
+    }
+    return sorted;
+  }
+}
@@ -0,0 +1,282 @@
+package cycling;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * Stores every rider's results in a single stage as parallel primitive arrays, one entry
+ * (slot) per rider. Slots are kept in the order the results were registered, so the results
+ * registered first come first when riders are tied.
+ *
+ * @author James Pilcher
+ * @author Daniel Moulton
+ * @version 1.0
+ */
+public class StageResultStore implements Serializable {
+
+  private static final long serialVersionUID = -5151107192213093847L;
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private int size = 0; // Number of riders with results in the stage
+  private int segmentCount = 0; // Number of segment times stored per rider
+
+  private int[] riderIds = new int[INITIAL_CAPACITY];
+  private long[] startTimes = new long[INITIAL_CAPACITY]; // Start time as nanoseconds of day
+  private long[] elapsedTimes = new long[INITIAL_CAPACITY]; // Time taken for the stage
+  private long[] adjustedTimes = new long[INITIAL_CAPACITY]; /* Time taken for the stage, adjusted
+                            for if a rider finishes within a second of the rider ahead */
+  private long[] segmentTimes = new long[0]; /* Time from the start to each segment, the times
+                            for the rider in slot i start at i * segmentCount */
+
+  private transient int[] slotsByRiderId = new int[0]; /* Slot of each rider indexed by rider ID,
+                          plus one, so 0 means the rider has no result in the stage. Rebuilt from
+                          riderIds on loading */
+
+  /**
+   * Reads the store's results and rebuilds the index of slots by rider ID, which isn't
+   * serialized.
+   *
+   * @param in the stream to read from
+   * @throws IOException If the stream can't be read.
+   * @throws ClassNotFoundException If a class in the stream can't be found.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    slotsByRiderId = new int[0];
+    for (int slot = 0; slot < size; slot++) {
+      indexSlot(riderIds[slot], slot);
+    }
+  }
+
+  /**
+   * Adds a rider's results to the end of the store. Every time is worked out from the
+   * checkpoints before the results become part of the store, so if they can't be read (e.g.
+   * one is null) the store is left as it was.
+   *
+   * @param riderId ID of the rider the results relate to
+   * @param checkpoints time at each checkpoint in the stage for the rider
+   * @return the slot the results were stored in
+   */
+  public int add(int riderId, LocalTime... checkpoints) {
+    if (size == 0) {
+      segmentCount = checkpoints.length - 2;
+    }
+    assert checkpoints.length == segmentCount + 2;
+    ensureCapacity(size + 1);
+
+    // The slot only becomes part of the store once every time has been read
+    int slot = size;
+    long startTime = checkpoints[0].toNanoOfDay();
+    long elapsedTime
+        = checkpoints[0].until(checkpoints[checkpoints.length - 1], ChronoUnit.NANOS);
+    for (int i = 1; i < checkpoints.length - 1; i++) {
+      segmentTimes[slot * segmentCount + i - 1]
+          = checkpoints[0].until(checkpoints[i], ChronoUnit.NANOS);
+    }
+
+    size++;
+    riderIds[slot] = riderId;
+    indexSlot(riderId, slot);
+    startTimes[slot] = startTime;
+    elapsedTimes[slot] = elapsedTime;
+    adjustedTimes[slot] = elapsedTime;
+    return slot;
+  }
+
+  /**
+   * Records which slot holds a rider's results, growing the index if needed.
+   *
+   * @param riderId ID of the rider
+   * @param slot slot holding the rider's results
+   */
+  private void indexSlot(int riderId, int slot) {
+    if (riderId >= slotsByRiderId.length) {
+      slotsByRiderId = Arrays.copyOf(slotsByRiderId,
+          Math.max(riderId + 1, slotsByRiderId.length * 2));
+    }
+    slotsByRiderId[riderId] = slot + 1;
+  }
+
+  /**
+   * Removes the results in a slot. Every later slot moves down by one.
+   *
+   * @param slot slot to remove
+   */
+  public void remove(int slot) {
+    assert slot >= 0 && slot < size;
+    slotsByRiderId[riderIds[slot]] = 0;
+    int moved = size - slot - 1;
+    System.arraycopy(riderIds, slot + 1, riderIds, slot, moved);
+    System.arraycopy(startTimes, slot + 1, startTimes, slot, moved);
+    System.arraycopy(elapsedTimes, slot + 1, elapsedTimes, slot, moved);
+    System.arraycopy(adjustedTimes, slot + 1, adjustedTimes, slot, moved);
+    System.arraycopy(segmentTimes, (slot + 1) * segmentCount,
+        segmentTimes, slot * segmentCount, moved * segmentCount);
+    size--;
+    for (int i = slot; i < size; i++) {
+      slotsByRiderId[riderIds[i]] = i + 1;
+    }
+  }
+
+  /**
+   * Removes the results in several slots at once, in a single pass over the store. The
+   * remaining slots keep their order and move down to fill the gaps.
+   *
+   * @param removed whether each slot is to be removed, indexed by slot
+   */
+  public void removeAll(boolean[] removed) {
+    assert removed.length >= size;
+    int kept = 0;
+    for (int slot = 0; slot < size; slot++) {
+      if (removed[slot]) {
+        slotsByRiderId[riderIds[slot]] = 0;
+        continue;
+      }
+      if (kept != slot) {
+        riderIds[kept] = riderIds[slot];
+        startTimes[kept] = startTimes[slot];
+        elapsedTimes[kept] = elapsedTimes[slot];
+        adjustedTimes[kept] = adjustedTimes[slot];
+        System.arraycopy(segmentTimes, slot * segmentCount,
+            segmentTimes, kept * segmentCount, segmentCount);
+        slotsByRiderId[riderIds[kept]] = kept + 1;
+      }
+      kept++;
+    }
+    size = kept;
+  }
+
+  /**
+   * Grows the arrays so they can hold at least the given number of riders.
+   *
+   * @param capacity number of riders to make room for
+   */
+  public void ensureCapacity(int capacity) {
+    if (capacity > riderIds.length) {
+      int newCapacity = Math.max(capacity, riderIds.length * 2);
+      riderIds = Arrays.copyOf(riderIds, newCapacity);
+      startTimes = Arrays.copyOf(startTimes, newCapacity);
+      elapsedTimes = Arrays.copyOf(elapsedTimes, newCapacity);
+      adjustedTimes = Arrays.copyOf(adjustedTimes, newCapacity);
+    }
+    if (capacity * segmentCount > segmentTimes.length) {
+      segmentTimes = Arrays.copyOf(segmentTimes, riderIds.length * segmentCount);
+    }
+  }
+
+  /**
+   * Gets the number of riders with results in the stage.
+   *
+   * @return number of riders
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the number of segment times stored for each rider.
+   *
+   * @return number of segments
+   */
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  /**
+   * Finds the slot holding a rider's results.
+   *
+   * @param riderId ID of the rider
+   * @return the rider's slot, or -1 if the rider has no result in the stage
+   */
+  public int getSlot(int riderId) {
+    if (riderId < 0 || riderId >= slotsByRiderId.length) {
+      return -1;
+    }
+    return slotsByRiderId[riderId] - 1;
+  }
+
+  /**
+   * Gets the ID of the rider in a slot.
+   *
+   * @param slot slot of the rider
+   * @return rider ID
+   */
+  public int getRiderId(int slot) {
+    return riderIds[slot];
+  }
+
+  /**
+   * Gets the start time of the rider in a slot.
+   *
+   * @param slot slot of the rider
+   * @return start time in nanoseconds of the day
+   */
+  public long getStartTime(int slot) {
+    return startTimes[slot];
+  }
+
+  /**
+   * Gets the total time of the rider in a slot.
+   *
+   * @param slot slot of the rider
+   * @return elapsed time in nanoseconds
+   */
+  public long getElapsedTime(int slot) {
+    return elapsedTimes[slot];
+  }
+
+  /**
+   * Gets the adjusted time of the rider in a slot.
+   *
+   * @param slot slot of the rider
+   * @return adjusted elapsed time in nanoseconds
+   */
+  public long getAdjustedTime(int slot) {
+    return adjustedTimes[slot];
+  }
+
+  /**
+   * Sets the adjusted time of the rider in a slot.
+   *
+   * @param slot slot of the rider
+   * @param adjustedTime the new adjusted time in nanoseconds
+   */
+  public void setAdjustedTime(int slot, long adjustedTime) {
+    adjustedTimes[slot] = adjustedTime;
+  }
+
+  /**
+   * Gets the time from the start to one of the segments for the rider in a slot.
+   *
+   * @param slot slot of the rider
+   * @param segmentIndex position of the segment within the stage
+   * @return segment time in nanoseconds
+   */
+  public long getSegmentTime(int slot, int segmentIndex) {
+    assert segmentIndex >= 0 && segmentIndex < segmentCount;
+    return segmentTimes[slot * segmentCount + segmentIndex];
+  }
+
+  /**
+   * Converts a time in nanoseconds into the h/m/s/nanoseconds LocalTime format.
+   *
+   * @param nanoseconds The time in nanoseconds to be converted.
+   * @return the time as a LocalTime
+   */
+  public static LocalTime nanoToLocalTime(long nanoseconds) {
+    int second = (int) (nanoseconds / 1000_000_000);
+    int minute = (int) (second / 60);
+    int hour = (int) (minute / 60);
+
+    nanoseconds %= 1000_000_000;
+    hour %= 60;
+    minute %= 60;
+    second %= 60;
+    return LocalTime.of(hour, minute, second, (int) nanoseconds);
+  }
+}
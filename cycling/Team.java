@@ -12,6 +12,8 @@ import java.util.LinkedList;
  */
 public class Team extends IdHaver implements Serializable {
 
+  private static final long serialVersionUID = -6516833630667256526L;
+
   private int id;
   private String teamName;
   private String teamDescription;
@@ -76,4 +78,14 @@ public class Team extends IdHaver implements Serializable {
   public static void resetIdCounter() {
     numberOfTeams = 0;
   }
+
+  /**
+   * Sets the number of teams, used when loading the cycling portal so new IDs don't clash
+   * with the loaded ones.
+   *
+   * @param highestId the highest team ID already in use
+   */
+  public static void resetIdCounter(int highestId) {
+    numberOfTeams = highestId;
+  }
 }